@@ -1,64 +1,134 @@
 package ru.practicum.shareit.booking;
 
+import org.apache.http.client.HttpClient;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.client.DefaultResponseErrorHandler;
+import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.DefaultUriBuilderFactory;
 import ru.practicum.shareit.booking.dto.BookItemRequestDto;
+import ru.practicum.shareit.booking.dto.BookingExportFormat;
 import ru.practicum.shareit.booking.dto.BookingState;
+import ru.practicum.shareit.client.AsyncServerClient;
 import ru.practicum.shareit.client.BaseClient;
+import ru.practicum.shareit.client.ResponseCache;
+import ru.practicum.shareit.client.SingleFlight;
 
+import javax.servlet.http.HttpServletResponse;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static ru.practicum.shareit.util.Constant.USER_ID_HEADER;
 
 @Service
 public class BookingClient extends BaseClient {
     private static final String API_PREFIX = "/bookings";
+    //Item cards show their owner the last and next bookings
+    private static final String ITEMS_RESOURCE = "/items/";
+
+    private final RestTemplate streamingRest;
 
     @Autowired
-    public BookingClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public BookingClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder,
+                         ClientHttpRequestFactory requestFactory, HttpClient httpClient,
+                         AsyncServerClient asyncClient, ResponseCache responseCache, SingleFlight singleFlight) {
         super(
                 builder
                         .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
-                        .requestFactory(HttpComponentsClientHttpRequestFactory::new)
-                        .build()
+                        .requestFactory(() -> requestFactory)
+                        .build(),
+                asyncClient,
+                responseCache,
+                singleFlight
         );
+        this.streamingRest = streamingRest(serverUrl + API_PREFIX, httpClient);
+        //Error responses are passed through to the caller like any other
+        this.streamingRest.setErrorHandler(new DefaultResponseErrorHandler() {
+            @Override
+            public boolean hasError(ClientHttpResponse response) {
+                return false;
+            }
+        });
     }
 
-    public ResponseEntity<Object> getBookings(long userId, BookingState state, int from, int size) {
+    public CompletableFuture<ResponseEntity<Object>> getBookings(long userId, BookingState state, int from, int size,
+                                                                 String cursor) {
         Map<String, Object> parameters = Map.of(
                 "state", state.name(),
                 "from", from,
                 "size", size
         );
-        return get("?state={state}&from={from}&size={size}", userId, parameters);
+        return get(withCursor("?state={state}&from={from}&size={size}", cursor), userId,
+                withCursor(parameters, cursor));
     }
 
 
-    public ResponseEntity<Object> bookItem(long userId, BookItemRequestDto requestDto) {
-        return post("", userId, requestDto);
+    public CompletableFuture<ResponseEntity<Object>> bookItem(long userId, BookItemRequestDto requestDto) {
+        return post("", userId, requestDto)
+                .whenComplete((response, e) -> responseCache.invalidate(ITEMS_RESOURCE + requestDto.getItemId()));
     }
 
-    public ResponseEntity<Object> getBooking(long userId, Long bookingId) {
+    public CompletableFuture<ResponseEntity<Object>> getBooking(long userId, Long bookingId) {
         return get("/" + bookingId, userId);
     }
 
-    public ResponseEntity<Object> approveBooking(long userId, long bookingId, boolean approved) {
+    public CompletableFuture<ResponseEntity<Object>> approveBooking(long userId, long bookingId, boolean approved) {
         Map<String, Object> parameters = Map.of(
                 "bookingId", bookingId,
                 "approved", approved
         );
-        return patch("/{bookingId}?approved={approved}", userId, parameters, null);
+        return patch("/{bookingId}?approved={approved}", userId, parameters, null)
+                .whenComplete((response, e) -> responseCache.invalidateAll(ITEMS_RESOURCE));
     }
 
-    public ResponseEntity<Object> getBookingsByOwner(long userId, BookingState state, int from, int size) {
+    public CompletableFuture<ResponseEntity<Object>> approveBookings(long userId, List<Long> bookingIds,
+                                                                     boolean approved) {
+        return patch("?approved={approved}", userId, Map.of("approved", approved), bookingIds)
+                .whenComplete((response, e) -> responseCache.invalidateAll(ITEMS_RESOURCE));
+    }
+
+    public CompletableFuture<ResponseEntity<Object>> getBookingsByOwner(long userId, BookingState state, int from,
+                                                                        int size, String cursor) {
         Map<String, Object> parameters = Map.of(
                 "state", state.name(),
                 "from", from,
                 "size", size
         );
-        return get("/owner?state={state}&from={from}&size={size}", userId, parameters);
+        return get(withCursor("/owner?state={state}&from={from}&size={size}", cursor), userId,
+                withCursor(parameters, cursor));
+    }
+
+    public void exportBookings(long userId, BookingExportFormat format, HttpServletResponse response) {
+        export("/export?format={format}", userId, format, response);
+    }
+
+    public void exportBookingsByOwner(long userId, BookingExportFormat format, HttpServletResponse response) {
+        export("/owner/export?format={format}", userId, format, response);
+    }
+
+    //Copies the server response as it arrives, the export is never held whole in the gateway
+    private void export(String path, long userId, BookingExportFormat format, HttpServletResponse servletResponse) {
+        streamingRest.execute(path, HttpMethod.GET,
+                request -> request.getHeaders().set(USER_ID_HEADER, String.valueOf(userId)),
+                response -> {
+                    servletResponse.setStatus(response.getRawStatusCode());
+                    for (String header : List.of(HttpHeaders.CONTENT_TYPE, HttpHeaders.CONTENT_DISPOSITION)) {
+                        String value = response.getHeaders().getFirst(header);
+                        if (value != null)
+                            servletResponse.setHeader(header, value);
+                    }
+                    StreamUtils.copy(response.getBody(), servletResponse.getOutputStream());
+                    return null;
+                },
+                Map.of("format", format.name()));
     }
 }
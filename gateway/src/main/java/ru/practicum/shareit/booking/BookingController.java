@@ -7,12 +7,20 @@ import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.shareit.booking.dto.BookItemRequestDto;
+import ru.practicum.shareit.booking.dto.BookingExportFormat;
 import ru.practicum.shareit.booking.dto.BookingState;
 
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
+import javax.validation.constraints.Size;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
+import static ru.practicum.shareit.util.Constant.MAX_BULK_DECISIONS;
 import static ru.practicum.shareit.util.Constant.USER_ID_HEADER;
 
 @Controller
@@ -24,21 +32,21 @@ public class BookingController {
     private final BookingClient bookingClient;
 
     @PostMapping
-    public ResponseEntity<Object> bookItem(@RequestHeader(USER_ID_HEADER) long userId,
-                                           @RequestBody @Valid BookItemRequestDto requestDto) {
+    public CompletableFuture<ResponseEntity<Object>> bookItem(@RequestHeader(USER_ID_HEADER) long userId,
+                                                              @RequestBody @Valid BookItemRequestDto requestDto) {
         log.info("Creating booking {}, userId={}", requestDto, userId);
         return bookingClient.bookItem(userId, requestDto);
     }
 
     @GetMapping("/{bookingId}")
-    public ResponseEntity<Object> getBooking(@RequestHeader(USER_ID_HEADER) long userId,
-                                             @PathVariable Long bookingId) {
+    public CompletableFuture<ResponseEntity<Object>> getBooking(@RequestHeader(USER_ID_HEADER) long userId,
+                                                                @PathVariable Long bookingId) {
         log.info("Get booking {}, userId={}", bookingId, userId);
         return bookingClient.getBooking(userId, bookingId);
     }
 
     @PatchMapping("/{bookingId}")
-    public ResponseEntity<Object> approveBooking(
+    public CompletableFuture<ResponseEntity<Object>> approveBooking(
             @RequestHeader(USER_ID_HEADER) long userId,
             @PathVariable long bookingId,
             @RequestParam boolean approved
@@ -47,28 +55,66 @@ public class BookingController {
         return bookingClient.approveBooking(userId, bookingId, approved);
     }
 
+    @PatchMapping
+    public CompletableFuture<ResponseEntity<Object>> approveBookings(
+            @RequestHeader(USER_ID_HEADER) long userId,
+            @RequestBody @NotEmpty @Size(max = MAX_BULK_DECISIONS) List<@NotNull Long> bookingIds,
+            @RequestParam boolean approved
+    ) {
+        log.info("Bookings approved userId={}, bookingIds={}, approved={}", userId, bookingIds, approved);
+        return bookingClient.approveBookings(userId, bookingIds, approved);
+    }
+
     @GetMapping
-    public ResponseEntity<Object> getBookings(
+    public CompletableFuture<ResponseEntity<Object>> getBookings(
             @RequestHeader(USER_ID_HEADER) long userId,
             @RequestParam(name = "state", defaultValue = "ALL", required = false) String stateParam,
             @PositiveOrZero @RequestParam(name = "from", defaultValue = "0") int from,
-            @Positive @RequestParam(name = "size", defaultValue = "10") int size) {
+            @Positive @RequestParam(name = "size", defaultValue = "10") int size,
+            @RequestParam(required = false) String cursor) {
         BookingState state = BookingState.from(stateParam)
                 .orElseThrow(() -> new IllegalArgumentException("Unknown state: " + stateParam));
-        log.info("Get booking with state {}, userId={}, from={}, size={}", stateParam, userId, from, size);
-        return bookingClient.getBookings(userId, state, from, size);
+        log.info("Get booking with state {}, userId={}, from={}, size={}, cursor={}", stateParam, userId, from, size,
+                cursor);
+        return bookingClient.getBookings(userId, state, from, size, cursor);
     }
 
     @GetMapping("/owner")
-    public ResponseEntity<Object> getBookingsByOwner(
+    public CompletableFuture<ResponseEntity<Object>> getBookingsByOwner(
             @RequestHeader(USER_ID_HEADER) long userId,
             @RequestParam(name = "state", defaultValue = "ALL", required = false) String stateParam,
             @PositiveOrZero @RequestParam(defaultValue = "0", required = false) int from,
-            @Positive @RequestParam(defaultValue = "10", required = false) int size
+            @Positive @RequestParam(defaultValue = "10", required = false) int size,
+            @RequestParam(required = false) String cursor
     ) {
-        log.info("Get Bookings owner userId={}, state={}, from={}, size={}", userId, stateParam, from, size);
+        log.info("Get Bookings owner userId={}, state={}, from={}, size={}, cursor={}", userId, stateParam, from,
+                size, cursor);
         BookingState state = BookingState.from(stateParam)
                 .orElseThrow(() -> new IllegalArgumentException("Unknown state: " + stateParam));
-        return bookingClient.getBookingsByOwner(userId, state, from, size);
+        return bookingClient.getBookingsByOwner(userId, state, from, size, cursor);
+    }
+
+    @GetMapping("/export")
+    public void exportBookings(
+            @RequestHeader(USER_ID_HEADER) long userId,
+            @RequestParam(name = "format", defaultValue = "ndjson", required = false) String formatParam,
+            HttpServletResponse response
+    ) {
+        BookingExportFormat format = BookingExportFormat.from(formatParam)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown format: " + formatParam));
+        log.info("Export bookings userId={}, format={}", userId, format);
+        bookingClient.exportBookings(userId, format, response);
+    }
+
+    @GetMapping("/owner/export")
+    public void exportBookingsByOwner(
+            @RequestHeader(USER_ID_HEADER) long userId,
+            @RequestParam(name = "format", defaultValue = "ndjson", required = false) String formatParam,
+            HttpServletResponse response
+    ) {
+        BookingExportFormat format = BookingExportFormat.from(formatParam)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown format: " + formatParam));
+        log.info("Export bookings owner userId={}, format={}", userId, format);
+        bookingClient.exportBookingsByOwner(userId, format, response);
     }
 }
@@ -0,0 +1,116 @@
+package ru.practicum.shareit.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//Non-blocking exchange with the server, no thread waits for the response. Off by default: it keeps its own
+//connections outside the pooled client, so the pool's connection cap, acquire timeout, idle eviction and metrics
+//do not apply to it. Worth switching on only when gateway threads, not server connections, are the limit
+@Slf4j
+@Component
+public class AsyncServerClient implements MeterBinder {
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final Duration readTimeout;
+    private final ExecutorService executor;
+    private final HttpClient httpClient;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public AsyncServerClient(ObjectMapper objectMapper,
+                             @Value("${shareit-server.http.async:false}") boolean enabled,
+                             @Value("${shareit-server.http.async-threads:4}") int threads,
+                             @Value("${shareit-server.http.connect-timeout-ms:2000}") long connectTimeoutMs,
+                             @Value("${shareit-server.http.read-timeout-ms:30000}") long readTimeoutMs) {
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.readTimeout = Duration.ofMillis(readTimeoutMs);
+        //Only completes responses, the sockets are served by the client's selector thread
+        this.executor = Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("server-async-"));
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .executor(executor)
+                .build();
+        if (enabled)
+            log.info("Async server client with {} threads", threads);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("shareit.server.async.requests.active", inFlight, AtomicInteger::get)
+                .description("Requests sent to the server and waiting for the response")
+                .register(registry);
+    }
+
+    //Answers with the server's status, headers and body bytes as they are, error statuses included
+    public CompletableFuture<ResponseEntity<byte[]>> exchange(HttpMethod method, URI uri, HttpHeaders headers,
+                                                              @Nullable Object body) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                .timeout(readTimeout)
+                .method(method.name(), toBodyPublisher(body));
+        headers.forEach((name, values) -> values.forEach(value -> request.header(name, value)));
+        inFlight.incrementAndGet();
+        return httpClient.sendAsync(request.build(), HttpResponse.BodyHandlers.ofByteArray())
+                //The client hands responses over to the common pool, dependents continue on our threads
+                .handleAsync((response, e) -> {
+                    inFlight.decrementAndGet();
+                    if (e != null) {
+                        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                        throw new ResourceAccessException("I/O error on " + method + " request for \"" + uri + "\": "
+                                + cause, cause instanceof IOException ? (IOException) cause : null);
+                    }
+                    return toResponseEntity(response);
+                }, executor);
+    }
+
+    private HttpRequest.BodyPublisher toBodyPublisher(@Nullable Object body) {
+        if (body == null)
+            return HttpRequest.BodyPublishers.noBody();
+        try {
+            return HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body));
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Request body is not serializable", e);
+        }
+    }
+
+    private static ResponseEntity<byte[]> toResponseEntity(HttpResponse<byte[]> response) {
+        HttpHeaders headers = new HttpHeaders();
+        response.headers().map().forEach(headers::put);
+        byte[] body = response.body().length == 0 ? null : response.body();
+        return new ResponseEntity<>(body, headers, HttpStatus.valueOf(response.statusCode()));
+    }
+}
@@ -1,108 +1,194 @@
 package ru.practicum.shareit.client;
 
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
 import org.springframework.http.*;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.lang.Nullable;
 import org.springframework.web.client.HttpStatusCodeException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.DefaultUriBuilderFactory;
 
+import java.net.URI;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 public class BaseClient {
+    //Describe the connection to the server, not the one to the caller
+    private static final Set<String> HOP_BY_HOP_HEADERS = Set.of("connection", "keep-alive", "transfer-encoding",
+            "te", "trailer", "upgrade", "proxy-authenticate", "proxy-authorization");
+
     protected final RestTemplate rest;
+    protected final ResponseCache responseCache;
+    private final AsyncServerClient asyncClient;
+    private final SingleFlight singleFlight;
 
-    public BaseClient(RestTemplate rest) {
+    public BaseClient(RestTemplate rest, AsyncServerClient asyncClient, ResponseCache responseCache,
+                      SingleFlight singleFlight) {
         this.rest = rest;
+        this.asyncClient = asyncClient;
+        this.responseCache = responseCache;
+        this.singleFlight = singleFlight;
     }
 
-    private static ResponseEntity<Object> prepareGatewayResponse(ResponseEntity<Object> response) {
+    //The body is forwarded as the server's bytes with its content type, never parsed and serialized again
+    protected static ResponseEntity<Object> prepareGatewayResponse(ResponseEntity<byte[]> response) {
         if (response.getStatusCode().is2xxSuccessful()) {
-            return response;
+            HttpHeaders headers = new HttpHeaders();
+            response.getHeaders().forEach((name, values) -> {
+                if (!HOP_BY_HOP_HEADERS.contains(name.toLowerCase(Locale.ROOT)))
+                    headers.put(name, values);
+            });
+            return new ResponseEntity<>(response.getBody(), headers, response.getStatusCode());
         }
 
         ResponseEntity.BodyBuilder responseBuilder = ResponseEntity.status(response.getStatusCode());
 
         if (response.hasBody()) {
+            MediaType contentType = response.getHeaders().getContentType();
+            if (contentType != null)
+                responseBuilder.contentType(contentType);
             return responseBuilder.body(response.getBody());
         }
 
         return responseBuilder.build();
     }
 
-    protected ResponseEntity<Object> get(String path) {
+    //Bodies are passed through while they are read, never buffered whole. Built without the builder, as any
+    //request interceptor (e.g. client metrics) buffers the body again. A request body is only sent after
+    //100 Continue, so a request the server rejects up front is answered without uploading it
+    protected static RestTemplate streamingRest(String rootUri, HttpClient httpClient) {
+        HttpComponentsClientHttpRequestFactory factory = new HttpComponentsClientHttpRequestFactory(httpClient) {
+            @Override
+            protected RequestConfig createRequestConfig(Object client) {
+                RequestConfig requestConfig = super.createRequestConfig(client);
+                return RequestConfig.copy(requestConfig == null ? RequestConfig.DEFAULT : requestConfig)
+                        .setExpectContinueEnabled(true)
+                        .build();
+            }
+        };
+        factory.setBufferRequestBody(false);
+        RestTemplate rest = new RestTemplate(factory);
+        rest.setUriTemplateHandler(new DefaultUriBuilderFactory(rootUri));
+        return rest;
+    }
+
+    protected static Map<String, Object> withCursor(Map<String, Object> parameters, @Nullable String cursor) {
+        if (cursor == null) {
+            return parameters;
+        }
+        Map<String, Object> cursorParameters = new HashMap<>(parameters);
+        cursorParameters.put("cursor", cursor);
+        return cursorParameters;
+    }
+
+    protected static String withCursor(String path, @Nullable String cursor) {
+        return cursor == null ? path : path + "&cursor={cursor}";
+    }
+
+    protected CompletableFuture<ResponseEntity<Object>> get(String path) {
         return get(path, null, null);
     }
 
-    protected ResponseEntity<Object> get(String path, long userId) {
+    protected CompletableFuture<ResponseEntity<Object>> get(String path, long userId) {
         return get(path, userId, null);
     }
 
-    protected ResponseEntity<Object> get(String path, Long userId, @Nullable Map<String, Object> parameters) {
+    protected CompletableFuture<ResponseEntity<Object>> get(String path, Long userId, @Nullable Map<String, Object> parameters) {
         return makeAndSendRequest(HttpMethod.GET, path, userId, parameters, null);
     }
 
-    protected <T> ResponseEntity<Object> post(String path, T body) {
+    protected <T> CompletableFuture<ResponseEntity<Object>> post(String path, T body) {
         return post(path, null, null, body);
     }
 
-    protected <T> ResponseEntity<Object> post(String path, long userId, T body) {
+    protected <T> CompletableFuture<ResponseEntity<Object>> post(String path, long userId, T body) {
         return post(path, userId, null, body);
     }
 
-    protected <T> ResponseEntity<Object> post(String path, Long userId, @Nullable Map<String, Object> parameters, T body) {
+    protected <T> CompletableFuture<ResponseEntity<Object>> post(String path, Long userId, @Nullable Map<String, Object> parameters, T body) {
         return makeAndSendRequest(HttpMethod.POST, path, userId, parameters, body);
     }
 
-    protected <T> ResponseEntity<Object> put(String path, long userId, T body) {
+    protected <T> CompletableFuture<ResponseEntity<Object>> put(String path, long userId, T body) {
         return put(path, userId, null, body);
     }
 
-    protected <T> ResponseEntity<Object> put(String path, long userId, @Nullable Map<String, Object> parameters, T body) {
+    protected <T> CompletableFuture<ResponseEntity<Object>> put(String path, long userId, @Nullable Map<String, Object> parameters, T body) {
         return makeAndSendRequest(HttpMethod.PUT, path, userId, parameters, body);
     }
 
-    protected <T> ResponseEntity<Object> patch(String path, T body) {
+    protected <T> CompletableFuture<ResponseEntity<Object>> patch(String path, T body) {
         return patch(path, null, null, body);
     }
 
-    protected <T> ResponseEntity<Object> patch(String path, long userId) {
+    protected <T> CompletableFuture<ResponseEntity<Object>> patch(String path, long userId) {
         return patch(path, userId, null, null);
     }
 
-    protected <T> ResponseEntity<Object> patch(String path, long userId, T body) {
+    protected <T> CompletableFuture<ResponseEntity<Object>> patch(String path, long userId, T body) {
         return patch(path, userId, null, body);
     }
 
-    protected <T> ResponseEntity<Object> patch(String path, Long userId, @Nullable Map<String, Object> parameters, T body) {
+    protected <T> CompletableFuture<ResponseEntity<Object>> patch(String path, Long userId, @Nullable Map<String, Object> parameters, T body) {
         return makeAndSendRequest(HttpMethod.PATCH, path, userId, parameters, body);
     }
 
-    protected ResponseEntity<Object> delete(String path) {
+    protected CompletableFuture<ResponseEntity<Object>> delete(String path) {
         return delete(path, null, null);
     }
 
-    protected ResponseEntity<Object> delete(String path, long userId) {
+    protected CompletableFuture<ResponseEntity<Object>> delete(String path, long userId) {
         return delete(path, userId, null);
     }
 
-    protected ResponseEntity<Object> delete(String path, Long userId, @Nullable Map<String, Object> parameters) {
+    protected CompletableFuture<ResponseEntity<Object>> delete(String path, Long userId, @Nullable Map<String, Object> parameters) {
         return makeAndSendRequest(HttpMethod.DELETE, path, userId, parameters, null);
     }
 
-    private <T> ResponseEntity<Object> makeAndSendRequest(HttpMethod method, String path, Long userId, @Nullable Map<String, Object> parameters, @Nullable T body) {
-        HttpEntity<T> requestEntity = new HttpEntity<>(body, defaultHeaders(userId));
+    //Answered from the response cache while it is fresh enough. The resource names what the response shows,
+    //so writes touching it invalidate the cached copies
+    protected CompletableFuture<ResponseEntity<Object>> getCached(String resource, String path, @Nullable Long userId) {
+        return responseCache.get(resource, userId, conditionalHeaders -> {
+            HttpHeaders headers = defaultHeaders(userId);
+            headers.addAll(conditionalHeaders);
+            return exchange(HttpMethod.GET, path, headers, null, null);
+        }).thenApply(BaseClient::prepareGatewayResponse);
+    }
 
-        ResponseEntity<Object> shareitServerResponse;
+    private <T> CompletableFuture<ResponseEntity<Object>> makeAndSendRequest(HttpMethod method, String path, Long userId, @Nullable Map<String, Object> parameters, @Nullable T body) {
+        return exchange(method, path, defaultHeaders(userId), parameters, body)
+                .thenApply(BaseClient::prepareGatewayResponse);
+    }
+
+    private <T> CompletableFuture<ResponseEntity<byte[]>> exchange(HttpMethod method, String path, HttpHeaders headers, @Nullable Map<String, Object> parameters, @Nullable T body) {
+        URI uri = parameters != null ? rest.getUriTemplateHandler().expand(path, parameters) :
+                rest.getUriTemplateHandler().expand(path);
+        if (method == HttpMethod.GET) {
+            return singleFlight.get(uri, headers, () -> send(method, uri, headers, body));
+        }
+        return send(method, uri, headers, body);
+    }
+
+    private <T> CompletableFuture<ResponseEntity<byte[]>> send(HttpMethod method, URI uri, HttpHeaders headers, @Nullable T body) {
+        if (asyncClient.isEnabled()) {
+            return asyncClient.exchange(method, uri, headers, body);
+        }
+
+        HttpEntity<T> requestEntity = new HttpEntity<>(body, headers);
+
+        ResponseEntity<byte[]> shareitServerResponse;
         try {
-            if (parameters != null) {
-                shareitServerResponse = rest.exchange(path, method, requestEntity, Object.class, parameters);
-            } else {
-                shareitServerResponse = rest.exchange(path, method, requestEntity, Object.class);
-            }
+            shareitServerResponse = rest.exchange(uri, method, requestEntity, byte[].class);
         } catch (HttpStatusCodeException e) {
-            return ResponseEntity.status(e.getStatusCode()).body(e.getResponseBodyAsByteArray());
+            shareitServerResponse = new ResponseEntity<>(e.getResponseBodyAsByteArray(), e.getResponseHeaders(),
+                    e.getStatusCode());
         }
-        return prepareGatewayResponse(shareitServerResponse);
+        return CompletableFuture.completedFuture(shareitServerResponse);
     }
 
     private HttpHeaders defaultHeaders(Long userId) {
@@ -0,0 +1,169 @@
+package ru.practicum.shareit.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+//Server responses for single resources, kept per calling user as the item card differs for its owner, or once
+//for resources read without one. A resource is named by its server path, e.g. /items/1, so a write through any
+//client invalidates what it touched
+@Slf4j
+@Component
+public class ResponseCache implements MeterBinder {
+    private final boolean enabled;
+    private final long maxAgeNanos;
+    private final long staleWhileRevalidateNanos;
+    private final Cache<Key, Entry> entries;
+    //Moves on every invalidation, a response read before it is not stored after it
+    private final AtomicLong generation = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+
+    public ResponseCache(@Value("${shareit-server.cache.enabled:true}") boolean enabled,
+                         @Value("${shareit-server.cache.max-age-ms:1000}") long maxAgeMs,
+                         @Value("${shareit-server.cache.stale-while-revalidate-ms:4000}") long staleWhileRevalidateMs,
+                         @Value("${shareit-server.cache.max-entries:10000}") long maxEntries) {
+        this.enabled = enabled;
+        this.maxAgeNanos = TimeUnit.MILLISECONDS.toNanos(maxAgeMs);
+        this.staleWhileRevalidateNanos = TimeUnit.MILLISECONDS.toNanos(staleWhileRevalidateMs);
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofMillis(maxAgeMs + staleWhileRevalidateMs))
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, entries, "shareit.server.responses");
+        FunctionCounter.builder("shareit.server.responses.not.modified", notModified, AtomicLong::get)
+                .description("Cached responses the server confirmed unchanged")
+                .register(registry);
+    }
+
+    //A fresh response is answered from the cache, a stale one too while it is revalidated in the background.
+    //Anything older is revalidated with If-None-Match before answering
+    public CompletableFuture<ResponseEntity<byte[]>> get(String resource, @Nullable Long userId,
+                                                         Function<HttpHeaders, CompletableFuture<ResponseEntity<byte[]>>> exchange) {
+        if (!enabled)
+            return exchange.apply(new HttpHeaders());
+        Key key = new Key(resource, userId);
+        Entry entry = entries.getIfPresent(key);
+        if (entry != null) {
+            long age = System.nanoTime() - entry.storedAt;
+            if (age < maxAgeNanos)
+                return CompletableFuture.completedFuture(entry.toResponse());
+            if (age < maxAgeNanos + staleWhileRevalidateNanos) {
+                if (entry.revalidating.compareAndSet(false, true)) {
+                    revalidate(key, entry, exchange).whenComplete((response, e) -> {
+                        entry.revalidating.set(false);
+                        if (e != null)
+                            log.debug("Revalidation of {} failed: {}", resource, e.toString());
+                    });
+                }
+                return CompletableFuture.completedFuture(entry.toResponse());
+            }
+        }
+        return revalidate(key, entry, exchange);
+    }
+
+    public void invalidate(String resource) {
+        invalidateIf(key -> key.resource.equals(resource));
+    }
+
+    public void invalidateAll(String resourcePrefix) {
+        invalidateIf(key -> key.resource.startsWith(resourcePrefix));
+    }
+
+    private void invalidateIf(Predicate<Key> predicate) {
+        if (!enabled)
+            return;
+        generation.incrementAndGet();
+        entries.asMap().keySet().removeIf(predicate);
+    }
+
+    private CompletableFuture<ResponseEntity<byte[]>> revalidate(Key key, Entry entry,
+                                                                 Function<HttpHeaders, CompletableFuture<ResponseEntity<byte[]>>> exchange) {
+        long readGeneration = generation.get();
+        HttpHeaders headers = new HttpHeaders();
+        if (entry != null && entry.etag != null)
+            headers.setIfNoneMatch(entry.etag);
+        return exchange.apply(headers).thenApply(response -> {
+            if (response.getStatusCode() == HttpStatus.NOT_MODIFIED && entry != null) {
+                notModified.incrementAndGet();
+                Entry refreshed = new Entry(entry.body, entry.headers, entry.etag);
+                store(key, refreshed, readGeneration);
+                return refreshed.toResponse();
+            }
+            if (response.getStatusCode() == HttpStatus.OK)
+                store(key, new Entry(response), readGeneration);
+            else
+                entries.invalidate(key);
+            return response;
+        });
+    }
+
+    private void store(Key key, Entry entry, long readGeneration) {
+        if (generation.get() != readGeneration)
+            return;
+        entries.put(key, entry);
+        //An invalidation between the check and the put may have missed the entry
+        if (generation.get() != readGeneration)
+            entries.asMap().remove(key, entry);
+    }
+
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static final class Key {
+        private final String resource;
+        private final Long userId;
+    }
+
+    private static final class Entry {
+        private final byte[] body;
+        private final HttpHeaders headers;
+        private final String etag;
+        private final long storedAt = System.nanoTime();
+        private final AtomicBoolean revalidating = new AtomicBoolean();
+
+        private Entry(ResponseEntity<byte[]> response) {
+            this.body = response.getBody();
+            this.etag = response.getHeaders().getETag();
+            HttpHeaders headers = new HttpHeaders();
+            if (response.getHeaders().getContentType() != null)
+                headers.setContentType(response.getHeaders().getContentType());
+            if (etag != null)
+                headers.setETag(etag);
+            this.headers = HttpHeaders.readOnlyHttpHeaders(headers);
+        }
+
+        private Entry(byte[] body, HttpHeaders headers, String etag) {
+            this.body = body;
+            this.headers = headers;
+            this.etag = etag;
+        }
+
+        private ResponseEntity<byte[]> toResponse() {
+            return new ResponseEntity<>(body, headers, HttpStatus.OK);
+        }
+    }
+}
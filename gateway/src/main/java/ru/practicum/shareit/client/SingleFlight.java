@@ -0,0 +1,121 @@
+package ru.practicum.shareit.client;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+//Identical GETs in flight at once share one server call, the first caller's, and all of them receive its
+//response. A caller waits for a shared call at most max-wait, then sends its own
+@Component
+public class SingleFlight implements MeterBinder {
+    private final boolean enabled;
+    private final long maxWaitMs;
+    //Sends the calls of callers that stopped waiting, a blocking exchange holds one of these threads
+    private final ExecutorService executor;
+    private final Map<Key, CompletableFuture<ResponseEntity<byte[]>>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+
+    public SingleFlight(@Value("${shareit-server.single-flight.enabled:true}") boolean enabled,
+                        @Value("${shareit-server.single-flight.max-wait-ms:2000}") long maxWaitMs,
+                        @Value("${shareit-server.single-flight.timeout-threads:8}") int timeoutThreads) {
+        this.enabled = enabled;
+        this.maxWaitMs = maxWaitMs;
+        this.executor = Executors.newFixedThreadPool(timeoutThreads, new CustomizableThreadFactory("single-flight-"));
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdown();
+    }
+
+    //The coalescing ratio is coalesced / (sent + coalesced)
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("shareit.server.single.flight.requests", sent, AtomicLong::get)
+                .description("GETs sent to the server and shared with identical ones")
+                .tag("result", "sent")
+                .register(registry);
+        FunctionCounter.builder("shareit.server.single.flight.requests", coalesced, AtomicLong::get)
+                .description("GETs sent to the server and shared with identical ones")
+                .tag("result", "coalesced")
+                .register(registry);
+        FunctionCounter.builder("shareit.server.single.flight.timeouts", timedOut, AtomicLong::get)
+                .description("Coalesced GETs that stopped waiting and were sent on their own")
+                .register(registry);
+        Gauge.builder("shareit.server.single.flight.active", inFlight, Map::size)
+                .description("Distinct GETs waiting for the server")
+                .register(registry);
+    }
+
+    public CompletableFuture<ResponseEntity<byte[]>> get(URI uri, HttpHeaders headers,
+                                                         Supplier<CompletableFuture<ResponseEntity<byte[]>>> exchange) {
+        if (!enabled)
+            return exchange.get();
+        Key key = new Key(uri, headers);
+        CompletableFuture<ResponseEntity<byte[]>> shared = new CompletableFuture<>();
+        CompletableFuture<ResponseEntity<byte[]>> existing = inFlight.putIfAbsent(key, shared);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return existing.copy()
+                    .orTimeout(maxWaitMs, TimeUnit.MILLISECONDS)
+                    .handle((response, e) -> {
+                        if (e instanceof TimeoutException) {
+                            timedOut.incrementAndGet();
+                            //Timeouts fire on the JDK's shared delayer thread, the own call is sent from ours
+                            return CompletableFuture.supplyAsync(exchange, executor)
+                                    .thenCompose(Function.identity());
+                        }
+                        return existing;
+                    })
+                    .thenCompose(Function.identity());
+        }
+        sent.incrementAndGet();
+        CompletableFuture<ResponseEntity<byte[]>> response;
+        try {
+            response = exchange.get();
+        } catch (RuntimeException e) {
+            inFlight.remove(key, shared);
+            shared.completeExceptionally(e);
+            throw e;
+        }
+        //Removed before completing, a caller arriving after the response is sent a fresh call
+        response.whenComplete((value, e) -> {
+            inFlight.remove(key, shared);
+            if (e != null)
+                shared.completeExceptionally(e);
+            else
+                shared.complete(value);
+        });
+        return shared;
+    }
+
+    @EqualsAndHashCode
+    @RequiredArgsConstructor
+    private static final class Key {
+        private final URI uri;
+        private final HttpHeaders headers;
+    }
+}
@@ -5,6 +5,9 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.client.ResourceAccessException;
+
+import javax.validation.ConstraintViolationException;
 
 @RestControllerAdvice
 @Slf4j
@@ -14,4 +17,19 @@ public class ErrorHandler {
         log.error(e.getMessage());
         return new ResponseEntity<>(new ErrorMessage(e.getMessage()), HttpStatus.BAD_REQUEST);
     }
+
+    //Invalid request parameters and bodies of @Validated controllers
+    @ExceptionHandler
+    public ResponseEntity<ErrorMessage> handleConstraintViolationException(ConstraintViolationException e) {
+        log.error(e.getMessage());
+        return new ResponseEntity<>(new ErrorMessage(e.getMessage()), HttpStatus.BAD_REQUEST);
+    }
+
+    //No pooled connection in time, or the server could not be reached
+    @ExceptionHandler
+    public ResponseEntity<ErrorMessage> handleResourceAccessException(ResourceAccessException e) {
+        log.error(e.getMessage());
+        return new ResponseEntity<>(new ErrorMessage("Server is unavailable, try again later"),
+                HttpStatus.SERVICE_UNAVAILABLE);
+    }
 }
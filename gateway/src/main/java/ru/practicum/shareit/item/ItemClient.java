@@ -1,62 +1,177 @@
 package ru.practicum.shareit.item;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.http.client.HttpClient;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RequestCallback;
+import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.DefaultUriBuilderFactory;
+import ru.practicum.shareit.client.AsyncServerClient;
 import ru.practicum.shareit.client.BaseClient;
+import ru.practicum.shareit.client.ResponseCache;
+import ru.practicum.shareit.client.SingleFlight;
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemImportResult;
 
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static ru.practicum.shareit.util.Constant.USER_ID_HEADER;
 
 @Service
 public class ItemClient extends BaseClient {
     private static final String API_PREFIX = "/items";
+    //Requests show the items created for them, an updated item may belong to any of them
+    private static final String REQUESTS_RESOURCE = "/requests/";
+
+    private final RestTemplate streamingRest;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public ItemClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public ItemClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder,
+                      ClientHttpRequestFactory requestFactory, HttpClient httpClient,
+                      AsyncServerClient asyncClient, ResponseCache responseCache, SingleFlight singleFlight,
+                      Validator validator, ObjectMapper objectMapper) {
         super(
                 builder
                         .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
-                        .requestFactory(HttpComponentsClientHttpRequestFactory::new)
-                        .build()
+                        .requestFactory(() -> requestFactory)
+                        .build(),
+                asyncClient,
+                responseCache,
+                singleFlight
         );
+        this.streamingRest = streamingRest(serverUrl + API_PREFIX, httpClient);
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+    }
+
+    public CompletableFuture<ResponseEntity<Object>> create(long userId, ItemDto itemDto) {
+        return post("", userId, itemDto).whenComplete((response, e) -> {
+            if (itemDto.getRequestId() != null)
+                responseCache.invalidate(REQUESTS_RESOURCE + itemDto.getRequestId());
+        });
     }
 
-    public ResponseEntity<Object> create(long userId, ItemDto itemDto) {
-        return post("", userId, itemDto);
+    public ResponseEntity<Object> importItems(long userId, InputStream body) {
+        ItemImportResult rejected = new ItemImportResult();
+        RequestCallback requestCallback = request -> {
+            request.getHeaders().setContentType(MediaType.APPLICATION_NDJSON);
+            request.getHeaders().setAccept(List.of(MediaType.APPLICATION_JSON));
+            request.getHeaders().set(USER_ID_HEADER, String.valueOf(userId));
+            ((StreamingHttpOutputMessage) request).setBody(out -> forwardValidLines(body, out, rejected));
+        };
+        ItemImportResult result;
+        try {
+            result = streamingRest.execute("/bulk", HttpMethod.POST, requestCallback,
+                    response -> objectMapper.readValue(response.getBody(), ItemImportResult.class));
+        } catch (HttpStatusCodeException e) {
+            return prepareGatewayResponse(new ResponseEntity<>(e.getResponseBodyAsByteArray(),
+                    e.getResponseHeaders(), e.getStatusCode()));
+        } finally {
+            responseCache.invalidateAll(REQUESTS_RESOURCE);
+        }
+        result.setReceived(result.getReceived() + rejected.getReceived());
+        result.getFailures().addAll(rejected.getFailures());
+        result.getFailures().sort(Comparator.comparingLong(ItemImportResult.Failure::getLine));
+        return ResponseEntity.ok(result);
     }
 
-    public ResponseEntity<Object> update(long userId, long itemId, ItemDto itemDto) {
-        return patch("/" + itemId, userId, itemDto);
+    public CompletableFuture<ResponseEntity<Object>> update(long userId, long itemId, ItemDto itemDto) {
+        return patch("/" + itemId, userId, itemDto).whenComplete((response, e) -> {
+            responseCache.invalidate(API_PREFIX + "/" + itemId);
+            responseCache.invalidateAll(REQUESTS_RESOURCE);
+        });
     }
 
-    public ResponseEntity<Object> getById(long userId, long itemId) {
-        return get("/" + itemId, userId);
+    public CompletableFuture<ResponseEntity<Object>> getById(long userId, long itemId) {
+        return getCached(API_PREFIX + "/" + itemId, "/" + itemId, userId);
     }
 
-    public ResponseEntity<Object> getItems(long userId, int from, int size) {
+    public CompletableFuture<ResponseEntity<Object>> getItems(long userId, int from, int size, String cursor) {
         Map<String, Object> parameters = Map.of(
                 "from", from,
                 "size", size
         );
-        return get("?from={from}&size={size}", userId, parameters);
+        return get(withCursor("?from={from}&size={size}", cursor), userId, withCursor(parameters, cursor));
     }
 
-    public ResponseEntity<Object> search(long userId, String text, int from, int size) {
+    public CompletableFuture<ResponseEntity<Object>> search(long userId, String text, int from, int size,
+                                                            String cursor) {
         Map<String, Object> parameters = Map.of(
                 "text", text,
                 "from", from,
                 "size", size
         );
-        return get("/search?text={text}&from={from}&size={size}", userId, parameters);
+        return get(withCursor("/search?text={text}&from={from}&size={size}", cursor), userId,
+                withCursor(parameters, cursor));
+    }
+
+    public CompletableFuture<ResponseEntity<Object>> addComment(long userId, long itemId, CommentDto commentDto) {
+        return post("/" + itemId + "/comment", userId, commentDto)
+                .whenComplete((response, e) -> responseCache.invalidate(API_PREFIX + "/" + itemId));
+    }
+
+    //Rejected lines are sent blank, so the server numbers the remaining lines as the caller did
+    private void forwardValidLines(InputStream body, OutputStream out, ItemImportResult rejected) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            String error = line.isBlank() ? null : validate(line);
+            if (error == null) {
+                writer.write(line);
+            } else {
+                rejected.setReceived(rejected.getReceived() + 1);
+                rejected.fail(lineNumber, error);
+            }
+            writer.write('\n');
+        }
+        writer.flush();
     }
 
-    public ResponseEntity<Object> addComment(long userId, long itemId, CommentDto commentDto) {
-        return post("/" + itemId + "/comment", userId, commentDto);
+    private String validate(String line) {
+        ItemDto itemDto;
+        try {
+            itemDto = objectMapper.readValue(line, ItemDto.class);
+        } catch (JsonProcessingException e) {
+            return "Malformed item json";
+        }
+        Set<ConstraintViolation<ItemDto>> violations = validator.validate(itemDto);
+        if (violations.isEmpty())
+            return null;
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
     }
 }
@@ -2,6 +2,7 @@ package ru.practicum.shareit.item;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
@@ -12,6 +13,8 @@ import ru.practicum.shareit.item.dto.ItemDto;
 import javax.validation.Valid;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
 
 import static ru.practicum.shareit.util.Constant.USER_ID_HEADER;
 
@@ -24,7 +27,7 @@ public class ItemController {
     private final ItemClient itemClient;
 
     @PostMapping
-    public ResponseEntity<Object> create(
+    public CompletableFuture<ResponseEntity<Object>> create(
             @RequestHeader(USER_ID_HEADER) long userId,
             @Valid @RequestBody ItemDto itemDto
     ) {
@@ -32,8 +35,17 @@ public class ItemController {
         return itemClient.create(userId, itemDto);
     }
 
+    @PostMapping(path = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<Object> importItems(
+            @RequestHeader(USER_ID_HEADER) long userId,
+            InputStream body
+    ) {
+        log.info("Import items userId={}", userId);
+        return itemClient.importItems(userId, body);
+    }
+
     @PatchMapping("/{itemId}")
-    public ResponseEntity<Object> update(
+    public CompletableFuture<ResponseEntity<Object>> update(
             @RequestHeader(USER_ID_HEADER) long userId,
             @PathVariable long itemId,
             @RequestBody ItemDto itemDto
@@ -43,34 +55,37 @@ public class ItemController {
     }
 
     @GetMapping("/{itemId}")
-    public ResponseEntity<Object> getById(@RequestHeader(USER_ID_HEADER) long userId, @PathVariable long itemId) {
+    public CompletableFuture<ResponseEntity<Object>> getById(@RequestHeader(USER_ID_HEADER) long userId,
+                                                             @PathVariable long itemId) {
         log.info("Get itemId={}, userId={}", itemId, userId);
         return itemClient.getById(userId, itemId);
     }
 
     @GetMapping
-    public ResponseEntity<Object> getAllByUser(
+    public CompletableFuture<ResponseEntity<Object>> getAllByUser(
             @RequestHeader(USER_ID_HEADER) long userId,
             @PositiveOrZero @RequestParam(defaultValue = "0", required = false) int from,
-            @Positive @RequestParam(defaultValue = "10", required = false) int size
+            @Positive @RequestParam(defaultValue = "10", required = false) int size,
+            @RequestParam(required = false) String cursor
     ) {
-        log.info("Get items userId{}, from={}, size={}", userId, from, size);
-        return itemClient.getItems(userId, from, size);
+        log.info("Get items userId{}, from={}, size={}, cursor={}", userId, from, size, cursor);
+        return itemClient.getItems(userId, from, size, cursor);
     }
 
     @GetMapping("/search")
-    public ResponseEntity<Object> searchByText(
+    public CompletableFuture<ResponseEntity<Object>> searchByText(
             @RequestParam String text,
             @RequestHeader(USER_ID_HEADER) long userId,
             @PositiveOrZero @RequestParam(defaultValue = "0", required = false) int from,
-            @Positive @RequestParam(defaultValue = "10", required = false) int size
+            @Positive @RequestParam(defaultValue = "10", required = false) int size,
+            @RequestParam(required = false) String cursor
     ) {
-        log.info("Search item by text={}, userId={}, from={}, size={}", text, userId, from, size);
-        return itemClient.search(userId, text, from, size);
+        log.info("Search item by text={}, userId={}, from={}, size={}, cursor={}", text, userId, from, size, cursor);
+        return itemClient.search(userId, text, from, size, cursor);
     }
 
     @PostMapping("/{itemId}/comment")
-    public ResponseEntity<Object> addCommentToItem(
+    public CompletableFuture<ResponseEntity<Object>> addCommentToItem(
             @RequestBody CommentDto commentDto,
             @PathVariable long itemId,
             @RequestHeader(USER_ID_HEADER) long userId
@@ -0,0 +1,28 @@
+package ru.practicum.shareit.item.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+public class ItemImportResult {
+    //Non-blank lines read, whether rejected here or by the server
+    private long received;
+    private long created;
+    private List<Failure> failures = new ArrayList<>();
+
+    public void fail(long line, String error) {
+        failures.add(new Failure(line, error));
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Failure {
+        private long line;
+        private String error;
+    }
+}
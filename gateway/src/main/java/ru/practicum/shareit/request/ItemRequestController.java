@@ -13,6 +13,7 @@ import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
 
 import static ru.practicum.shareit.util.Constant.USER_ID_HEADER;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 @Controller
@@ -23,7 +24,7 @@ public class ItemRequestController {
     private final ItemRequestClient itemRequestClient;
 
     @PostMapping
-    public ResponseEntity<Object> create(
+    public CompletableFuture<ResponseEntity<Object>> create(
             @RequestHeader(USER_ID_HEADER) long userId,
             @Valid @RequestBody ItemRequestDto itemRequestDto
     ) {
@@ -32,23 +33,27 @@ public class ItemRequestController {
     }
 
     @GetMapping
-    public ResponseEntity<Object> findByOwnerItemRequest(@RequestHeader(USER_ID_HEADER) long requesterId) {
+    public CompletableFuture<ResponseEntity<Object>> findByOwnerItemRequest(
+            @RequestHeader(USER_ID_HEADER) long requesterId
+    ) {
         log.info("Get ItemRequest requesterId={}", requesterId);
         return itemRequestClient.findByOwnerItemRequest(requesterId);
     }
 
     @GetMapping("/all")
-    public ResponseEntity<Object> findAllItemRequest(
+    public CompletableFuture<ResponseEntity<Object>> findAllItemRequest(
             @RequestHeader(USER_ID_HEADER) long userId,
             @PositiveOrZero @RequestParam(defaultValue = "0", required = false) int from,
-            @Positive @RequestParam(defaultValue = "10", required = false) int size
+            @Positive @RequestParam(defaultValue = "10", required = false) int size,
+            @RequestParam(required = false) String cursor
     ) {
-        log.info("Get all ItemRequests userId={}, from={}, size={}", userId, from, size);
-        return itemRequestClient.getRequests(userId, from, size);
+        log.info("Get all ItemRequests userId={}, from={}, size={}, cursor={}", userId, from, size, cursor);
+        return itemRequestClient.getRequests(userId, from, size, cursor);
     }
 
     @GetMapping("/{requestId}")
-    public ResponseEntity<Object> getById(@RequestHeader(USER_ID_HEADER) long userId, @PathVariable long requestId) {
+    public CompletableFuture<ResponseEntity<Object>> getById(@RequestHeader(USER_ID_HEADER) long userId,
+                                                             @PathVariable long requestId) {
         log.info("Get ItemRequest requestId={}, userId={}", requestId, userId);
         return itemRequestClient.getRequest(userId, requestId);
     }
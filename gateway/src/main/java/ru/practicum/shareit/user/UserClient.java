@@ -4,44 +4,64 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.web.util.DefaultUriBuilderFactory;
+import ru.practicum.shareit.client.AsyncServerClient;
 import ru.practicum.shareit.client.BaseClient;
+import ru.practicum.shareit.client.ResponseCache;
+import ru.practicum.shareit.client.SingleFlight;
 import ru.practicum.shareit.user.dto.UserDto;
 
+import java.util.concurrent.CompletableFuture;
+
 @Service
 public class UserClient extends BaseClient {
     private static final String API_PREFIX = "/users";
+    //Item cards show the names of comment authors, requests are deleted with their requester
+    private static final String ITEMS_RESOURCE = "/items/";
+    private static final String REQUESTS_RESOURCE = "/requests/";
 
     @Autowired
-    public UserClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public UserClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder,
+                      ClientHttpRequestFactory requestFactory,
+                      AsyncServerClient asyncClient, ResponseCache responseCache, SingleFlight singleFlight) {
         super(
                 builder
                         .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
-                        .requestFactory(HttpComponentsClientHttpRequestFactory::new)
-                        .build()
+                        .requestFactory(() -> requestFactory)
+                        .build(),
+                asyncClient,
+                responseCache,
+                singleFlight
         );
     }
 
-    public ResponseEntity<Object> getUsers() {
+    public CompletableFuture<ResponseEntity<Object>> getUsers() {
         return get("");
     }
 
-    public ResponseEntity<Object> getUser(long userId) {
-        return get("/" + userId);
+    public CompletableFuture<ResponseEntity<Object>> getUser(long userId) {
+        return getCached(API_PREFIX + "/" + userId, "/" + userId, null);
     }
 
-    public ResponseEntity<Object> addUser(UserDto userDto) {
+    public CompletableFuture<ResponseEntity<Object>> addUser(UserDto userDto) {
         return post("", userDto);
     }
 
-    public ResponseEntity<Object> update(long userId, UserDto userDto) {
-        return patch("/" + userId, userDto);
+    public CompletableFuture<ResponseEntity<Object>> update(long userId, UserDto userDto) {
+        return patch("/" + userId, userDto).whenComplete((response, e) -> {
+            responseCache.invalidate(API_PREFIX + "/" + userId);
+            responseCache.invalidateAll(ITEMS_RESOURCE);
+        });
     }
 
-    public ResponseEntity<Object> remove(long userId) {
-        return delete("/" + userId);
+    public CompletableFuture<ResponseEntity<Object>> remove(long userId) {
+        return delete("/" + userId).whenComplete((response, e) -> {
+            responseCache.invalidate(API_PREFIX + "/" + userId);
+            responseCache.invalidateAll(ITEMS_RESOURCE);
+            responseCache.invalidateAll(REQUESTS_RESOURCE);
+        });
     }
 
 }
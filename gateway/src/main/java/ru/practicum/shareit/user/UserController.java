@@ -9,6 +9,7 @@ import org.springframework.web.bind.annotation.*;
 import ru.practicum.shareit.user.dto.UserDto;
 
 import javax.validation.Valid;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 @Controller
@@ -20,31 +21,31 @@ public class UserController {
     private final UserClient userClient;
 
     @GetMapping
-    public ResponseEntity<Object> getAll() {
+    public CompletableFuture<ResponseEntity<Object>> getAll() {
         log.info("Get all Users");
         return userClient.getUsers();
     }
 
     @GetMapping("/{userId}")
-    public ResponseEntity<Object> getById(@PathVariable long userId) {
+    public CompletableFuture<ResponseEntity<Object>> getById(@PathVariable long userId) {
         log.info("Get userId={}", userId);
         return userClient.getUser(userId);
     }
 
     @PostMapping
-    public ResponseEntity<Object> create(@Valid @RequestBody UserDto userDto) {
+    public CompletableFuture<ResponseEntity<Object>> create(@Valid @RequestBody UserDto userDto) {
         log.info("Add user userDto={}", userDto);
         return userClient.addUser(userDto);
     }
 
     @PatchMapping("/{userId}")
-    public ResponseEntity<Object> update(@PathVariable long userId, @RequestBody UserDto userDto) {
+    public CompletableFuture<ResponseEntity<Object>> update(@PathVariable long userId, @RequestBody UserDto userDto) {
         log.info("Update user userId={}, userDto={}", userId, userDto);
         return userClient.update(userId, userDto);
     }
 
     @DeleteMapping("/{userId}")
-    public ResponseEntity<Object> remove(@PathVariable long userId) {
+    public CompletableFuture<ResponseEntity<Object>> remove(@PathVariable long userId) {
         log.info("Remove userId={}", userId);
         return userClient.remove(userId);
     }
@@ -2,4 +2,6 @@ package ru.practicum.shareit.util;
 
 public class Constant {
     public static final String USER_ID_HEADER = "X-Sharer-User-Id";
+    //Bookings decided in one request, the server locks all of them in one transaction
+    public static final int MAX_BULK_DECISIONS = 1000;
 }
@@ -0,0 +1,142 @@
+package ru.practicum.shareit.unit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import ru.practicum.shareit.client.ResponseCache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResponseCacheUnitTest {
+    private static final String ITEM = "/items/1";
+    private static final long MINUTE_MS = 60_000;
+
+    @Test
+    public void shouldAnswerFreshReadFromCache() {
+        ResponseCache cache = new ResponseCache(true, MINUTE_MS, MINUTE_MS, 100);
+        assertEquals("a", body(cache.get(ITEM, 1L, respond(ok("a", "\"1\"")))));
+
+        assertEquals("a", body(cache.get(ITEM, 1L, notCalled())));
+        //Cached per calling user
+        assertEquals("b", body(cache.get(ITEM, 2L, respond(ok("b", "\"2\"")))));
+    }
+
+    @Test
+    public void shouldAnswerStaleReadAndRevalidateInBackground() {
+        ResponseCache cache = new ResponseCache(true, 0, MINUTE_MS, 100);
+        cache.get(ITEM, 1L, respond(ok("a", "\"1\""))).join();
+        List<HttpHeaders> requests = new ArrayList<>();
+        CompletableFuture<ResponseEntity<byte[]>> server = new CompletableFuture<>();
+
+        CompletableFuture<ResponseEntity<byte[]>> stale = cache.get(ITEM, 1L, headers -> {
+            requests.add(headers);
+            return server;
+        });
+        assertTrue(stale.isDone());
+        assertEquals("a", body(stale));
+        assertEquals(List.of("\"1\""), requests.get(0).getIfNoneMatch());
+        //One revalidation at a time, later stale reads are answered without another
+        assertEquals("a", body(cache.get(ITEM, 1L, notCalled())));
+        assertEquals(1, requests.size());
+
+        server.complete(ok("b", "\"2\""));
+        //Still stale, so answered from the revalidated entry while the server is asked again
+        assertEquals("b", body(cache.get(ITEM, 1L, headers -> new CompletableFuture<>())));
+    }
+
+    @Test
+    public void shouldWaitForServerOnExpiredRead() {
+        ResponseCache cache = new ResponseCache(true, 0, 0, 100);
+        cache.get(ITEM, 1L, respond(ok("a", "\"1\""))).join();
+        List<HttpHeaders> requests = new ArrayList<>();
+        CompletableFuture<ResponseEntity<byte[]>> server = new CompletableFuture<>();
+
+        CompletableFuture<ResponseEntity<byte[]>> expired = cache.get(ITEM, 1L, headers -> {
+            requests.add(headers);
+            return server;
+        });
+        assertFalse(expired.isDone());
+        assertTrue(requests.get(0).getIfNoneMatch().isEmpty());
+        server.complete(ok("b", "\"2\""));
+        assertEquals("b", body(expired));
+    }
+
+    @Test
+    public void shouldNotStoreResponseReadBeforeInvalidation() {
+        ResponseCache cache = new ResponseCache(true, MINUTE_MS, MINUTE_MS, 100);
+        CompletableFuture<ResponseEntity<byte[]>> server = new CompletableFuture<>();
+        CompletableFuture<ResponseEntity<byte[]>> read = cache.get(ITEM, 1L, headers -> server);
+
+        cache.invalidate(ITEM);
+        server.complete(ok("old", "\"1\""));
+        //The caller still gets what it read, the next read goes to the server
+        assertEquals("old", body(read));
+        assertEquals("new", body(cache.get(ITEM, 1L, respond(ok("new", "\"2\"")))));
+        assertEquals("new", body(cache.get(ITEM, 1L, notCalled())));
+
+        cache.invalidateAll("/items");
+        assertEquals("newer", body(cache.get(ITEM, 1L, respond(ok("newer", "\"3\"")))));
+    }
+
+    @Test
+    public void shouldRefreshEntryConfirmedUnchanged() {
+        ResponseCache cache = new ResponseCache(true, 0, MINUTE_MS, 100);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        cache.bindTo(registry);
+        cache.get(ITEM, 1L, respond(ok("a", "\"1\""))).join();
+
+        cache.get(ITEM, 1L, respond(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag("\"1\"").build())).join();
+
+        assertEquals(1, registry.get("shareit.server.responses.not.modified").functionCounter().count());
+        List<HttpHeaders> requests = new ArrayList<>();
+        ResponseEntity<byte[]> refreshed = cache.get(ITEM, 1L, headers -> {
+            requests.add(headers);
+            return new CompletableFuture<>();
+        }).join();
+        assertEquals("a", new String(refreshed.getBody(), StandardCharsets.UTF_8));
+        assertEquals("\"1\"", refreshed.getHeaders().getETag());
+        assertEquals(MediaType.APPLICATION_JSON, refreshed.getHeaders().getContentType());
+        //The refreshed entry is revalidated with the etag it kept
+        assertEquals(List.of("\"1\""), requests.get(0).getIfNoneMatch());
+    }
+
+    @Test
+    public void shouldAlwaysCallServerWhenDisabled() {
+        ResponseCache cache = new ResponseCache(false, MINUTE_MS, MINUTE_MS, 100);
+        assertEquals("a", body(cache.get(ITEM, 1L, respond(ok("a", "\"1\"")))));
+        assertEquals("b", body(cache.get(ITEM, 1L, respond(ok("b", "\"2\"")))));
+    }
+
+    private static ResponseEntity<byte[]> ok(String body, String etag) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(etag)
+                .body(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Function<HttpHeaders, CompletableFuture<ResponseEntity<byte[]>>> respond(
+            ResponseEntity<byte[]> response) {
+        return headers -> CompletableFuture.completedFuture(response);
+    }
+
+    private static Function<HttpHeaders, CompletableFuture<ResponseEntity<byte[]>>> notCalled() {
+        return headers -> {
+            throw new AssertionError("Server called for a cached response");
+        };
+    }
+
+    private static String body(CompletableFuture<ResponseEntity<byte[]>> response) {
+        return new String(response.join().getBody(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,146 @@
+package ru.practicum.shareit.unit;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import ru.practicum.shareit.client.SingleFlight;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightUnitTest {
+    private static final URI ITEM = URI.create("http://localhost:9090/items/1");
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private SingleFlight singleFlight;
+
+    @AfterEach
+    public void afterEach() {
+        singleFlight.stop();
+    }
+
+    @Test
+    public void shouldShareOneCallBetweenIdenticalGets() {
+        startSingleFlight(true, 5000);
+        CompletableFuture<ResponseEntity<byte[]>> server = new CompletableFuture<>();
+        AtomicInteger calls = new AtomicInteger();
+
+        CompletableFuture<ResponseEntity<byte[]>> first = singleFlight.get(ITEM, headers(1), () -> {
+            calls.incrementAndGet();
+            return server;
+        });
+        CompletableFuture<ResponseEntity<byte[]>> second = singleFlight.get(ITEM, headers(1), notCalled());
+        assertEquals(1.0, registry.get("shareit.server.single.flight.active").gauge().value());
+        //Another user's GET is not the same request
+        assertEquals("other", body(singleFlight.get(ITEM, headers(2), respond("other"))));
+
+        ResponseEntity<byte[]> response = ResponseEntity.ok("a".getBytes(StandardCharsets.UTF_8));
+        server.complete(response);
+        assertSame(response, first.join());
+        assertSame(response, second.join());
+        assertEquals(1, calls.get());
+        assertEquals(2.0, requests("sent"));
+        assertEquals(1.0, requests("coalesced"));
+        assertEquals(0.0, registry.get("shareit.server.single.flight.active").gauge().value());
+
+        //A GET arriving after the response gets a fresh call
+        assertEquals("b", body(singleFlight.get(ITEM, headers(1), respond("b"))));
+        assertEquals(3.0, requests("sent"));
+    }
+
+    @Test
+    public void shouldSendOwnCallOffTheTimerThreadAfterMaxWait() {
+        startSingleFlight(true, 50);
+        CompletableFuture<ResponseEntity<byte[]>> server = new CompletableFuture<>();
+        singleFlight.get(ITEM, headers(1), () -> server);
+        List<String> threads = new ArrayList<>();
+
+        CompletableFuture<ResponseEntity<byte[]>> waiter = singleFlight.get(ITEM, headers(1), () -> {
+            threads.add(Thread.currentThread().getName());
+            return CompletableFuture.completedFuture(ResponseEntity.ok("own".getBytes(StandardCharsets.UTF_8)));
+        });
+
+        assertEquals("own", body(waiter));
+        assertEquals(1, threads.size());
+        assertTrue(threads.get(0).startsWith("single-flight-"), threads.get(0));
+        assertEquals(1.0, registry.get("shareit.server.single.flight.timeouts").functionCounter().count());
+        assertFalse(server.isDone());
+    }
+
+    @Test
+    public void shouldPassServerFailureToEveryCaller() {
+        startSingleFlight(true, 5000);
+        CompletableFuture<ResponseEntity<byte[]>> server = new CompletableFuture<>();
+        CompletableFuture<ResponseEntity<byte[]>> first = singleFlight.get(ITEM, headers(1), () -> server);
+        CompletableFuture<ResponseEntity<byte[]>> second = singleFlight.get(ITEM, headers(1), notCalled());
+
+        IllegalStateException failure = new IllegalStateException("Server is down");
+        server.completeExceptionally(failure);
+        assertSame(failure, assertThrows(CompletionException.class, first::join).getCause());
+        assertSame(failure, assertThrows(CompletionException.class, second::join).getCause());
+        assertEquals(0.0, registry.get("shareit.server.single.flight.timeouts").functionCounter().count());
+    }
+
+    @Test
+    public void shouldForgetCallThatFailedToStart() {
+        startSingleFlight(true, 5000);
+        assertThrows(IllegalStateException.class, () -> singleFlight.get(ITEM, headers(1), () -> {
+            throw new IllegalStateException("No connection");
+        }));
+
+        assertEquals("a", body(singleFlight.get(ITEM, headers(1), respond("a"))));
+    }
+
+    @Test
+    public void shouldSendEveryGetWhenDisabled() {
+        startSingleFlight(false, 5000);
+        CompletableFuture<ResponseEntity<byte[]>> server = new CompletableFuture<>();
+        singleFlight.get(ITEM, headers(1), () -> server);
+
+        assertEquals("a", body(singleFlight.get(ITEM, headers(1), respond("a"))));
+        assertEquals(0.0, requests("coalesced"));
+    }
+
+    private void startSingleFlight(boolean enabled, long maxWaitMs) {
+        singleFlight = new SingleFlight(enabled, maxWaitMs, 2);
+        singleFlight.bindTo(registry);
+    }
+
+    private double requests(String result) {
+        return registry.get("shareit.server.single.flight.requests").tag("result", result).functionCounter().count();
+    }
+
+    private static HttpHeaders headers(long userId) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-Sharer-User-Id", String.valueOf(userId));
+        return headers;
+    }
+
+    private static Supplier<CompletableFuture<ResponseEntity<byte[]>>> respond(String body) {
+        return () -> CompletableFuture.completedFuture(ResponseEntity.ok(body.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static Supplier<CompletableFuture<ResponseEntity<byte[]>>> notCalled() {
+        return () -> {
+            throw new AssertionError("Server called for a shared GET");
+        };
+    }
+
+    private static String body(CompletableFuture<ResponseEntity<byte[]>> response) {
+        return new String(response.orTimeout(5, TimeUnit.SECONDS).join().getBody(), StandardCharsets.UTF_8);
+    }
+}
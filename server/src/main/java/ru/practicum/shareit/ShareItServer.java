@@ -1,13 +1,66 @@
 package ru.practicum.shareit;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpMethod;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
 
+import javax.servlet.http.HttpServletRequest;
+import java.util.List;
+import java.util.regex.Pattern;
+
+@EnableCaching
+@EnableScheduling
 @SpringBootApplication
 public class ShareItServer {
+    private static final Pattern SINGLE_RESOURCE = Pattern.compile("/(items|users|requests)/\\d+");
 
     public static void main(String[] args) {
         SpringApplication.run(ShareItServer.class, args);
     }
 
+    //100 Continue goes out once a handler reads the body, so a rejected bulk import is never uploaded
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> continueOnRead() {
+        return factory -> factory.addConnectorCustomizers(connector ->
+                connector.setProperty("continueResponseTiming", "onRead"));
+    }
+
+    //Puts and evictions inside a transaction are applied once it commits. A rollback leaves the caches as they
+    //were, and an eviction cannot be undone by a read of the row still committed before it
+    @Bean
+    public CacheManager cacheManager(@Value("${spring.cache.cache-names}") List<String> cacheNames,
+                                     @Value("${spring.cache.caffeine.spec}") String cacheSpecification) {
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
+        cacheManager.setCacheSpecification(cacheSpecification);
+        cacheManager.setCacheNames(cacheNames);
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+
+    //Single items, users and requests carry an ETag, the gateway revalidates its cached copies with
+    //If-None-Match and is answered 304 without the body. Lists and exports are not buffered for it
+    @Bean
+    public FilterRegistrationBean<ShallowEtagHeaderFilter> resourceEtagFilter() {
+        FilterRegistrationBean<ShallowEtagHeaderFilter> registration = new FilterRegistrationBean<>(
+                new ShallowEtagHeaderFilter() {
+                    @Override
+                    protected boolean shouldNotFilter(HttpServletRequest request) {
+                        return !HttpMethod.GET.matches(request.getMethod())
+                                || !SINGLE_RESOURCE.matcher(request.getRequestURI()).matches();
+                    }
+                });
+        registration.addUrlPatterns("/items/*", "/users/*", "/requests/*");
+        return registration;
+    }
+
 }
@@ -2,16 +2,24 @@ package ru.practicum.shareit.booking;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingExportFormat;
 import ru.practicum.shareit.booking.dto.BookingMapper;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.BookingState;
+import ru.practicum.shareit.booking.service.BookingExporter;
+import ru.practicum.shareit.booking.service.BookingSequencer;
 import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.util.Cursor;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import static ru.practicum.shareit.util.Constant.NEXT_CURSOR_HEADER;
 import static ru.practicum.shareit.util.Constant.USER_ID_HEADER;
 
 @Slf4j
@@ -20,6 +28,8 @@ import static ru.practicum.shareit.util.Constant.USER_ID_HEADER;
 @RequiredArgsConstructor
 public class BookingController {
     private final BookingService bookingService;
+    private final BookingSequencer bookingSequencer;
+    private final BookingExporter bookingExporter;
 
     @PostMapping
     public BookingDto create(
@@ -28,6 +38,9 @@ public class BookingController {
     ) {
         log.info("Creating booking={}, userId={}", bookingDto, bookerId);
         Booking booking = BookingMapper.toBooking(bookingDto);
+        // Burst intake queues bookings per item instead of racing for the same rows
+        if (bookingSequencer.isEnabled())
+            return BookingMapper.toBookingDto(bookingSequencer.submit(bookerId, booking));
         return BookingMapper.toBookingDto(bookingService.create(bookerId, booking));
     }
 
@@ -41,6 +54,19 @@ public class BookingController {
         return BookingMapper.toBookingDto(bookingService.approveBooking(bookerId, bookingId, approved));
     }
 
+    @PatchMapping
+    public List<BookingDto> approveBookings(
+            @RequestHeader(USER_ID_HEADER) long ownerId,
+            @RequestBody List<Long> bookingIds,
+            @RequestParam boolean approved
+    ) {
+        log.info("Bookings approved userId={}, bookingIds={}, approved={}", ownerId, bookingIds, approved);
+        // Only the caller's waiting bookings are decided, the rest are left out of the response
+        return bookingService.approveBookings(ownerId, bookingIds, approved).stream()
+                .map(BookingMapper::toBookingDto)
+                .collect(Collectors.toList());
+    }
+
     @GetMapping("/{bookingId}")
     public BookingDto getByIdEndUserId(@PathVariable long bookingId, @RequestHeader(USER_ID_HEADER) long userId) {
         log.info("Get booking={}, userId={}", bookingId, userId);
@@ -48,28 +74,68 @@ public class BookingController {
     }
 
     @GetMapping
-    public List<BookingDto> findAllByUserId(
+    public ResponseEntity<List<BookingDto>> findAllByUserId(
             @RequestHeader(USER_ID_HEADER) long userId,
             @RequestParam(defaultValue = "ALL", required = false) BookingState state,
             @RequestParam(defaultValue = "0", required = false) int from,
-            @RequestParam(defaultValue = "10", required = false) int size
+            @RequestParam(defaultValue = "10", required = false) int size,
+            @RequestParam(required = false) String cursor
     ) {
-        log.info("Get bookings with state={}, userId={}, from={}, size={}", state, userId, from, size);
-        return bookingService.findAllByUserId(userId, state, from, size).stream()
-                .map(BookingMapper::toBookingDto)
-                .collect(Collectors.toList());
+        log.info("Get bookings with state={}, userId={}, from={}, size={}, cursor={}", state, userId, from, size,
+                cursor);
+        if (cursor == null)
+            return ResponseEntity.ok(toBookingDtoList(bookingService.findAllByUserId(userId, state, from, size)));
+        return toKeysetResponse(bookingService.findAllByUserId(userId, state, Cursor.decode(cursor), size), size);
     }
 
     @GetMapping("/owner")
-    public List<BookingDto> findAllByOwnerId(
+    public ResponseEntity<List<BookingDto>> findAllByOwnerId(
             @RequestHeader(USER_ID_HEADER) long ownerId,
             @RequestParam(defaultValue = "ALL", required = false) BookingState state,
             @RequestParam(defaultValue = "0", required = false) int from,
-            @RequestParam(defaultValue = "10", required = false) int size
+            @RequestParam(defaultValue = "10", required = false) int size,
+            @RequestParam(required = false) String cursor
     ) {
-        log.info("Get bookings owner with state={}, userId={}, from={}, size={}", state, ownerId, from, size);
-        return bookingService.findAllByOwnerId(ownerId, state, from, size).stream()
+        log.info("Get bookings owner with state={}, userId={}, from={}, size={}, cursor={}", state, ownerId, from,
+                size, cursor);
+        if (cursor == null)
+            return ResponseEntity.ok(toBookingDtoList(bookingService.findAllByOwnerId(ownerId, state, from, size)));
+        return toKeysetResponse(bookingService.findAllByOwnerId(ownerId, state, Cursor.decode(cursor), size), size);
+    }
+
+    @GetMapping("/export")
+    public void exportByUserId(
+            @RequestHeader(USER_ID_HEADER) long userId,
+            @RequestParam(defaultValue = "NDJSON", required = false) BookingExportFormat format,
+            HttpServletResponse response
+    ) throws IOException {
+        log.info("Export bookings userId={}, format={}", userId, format);
+        bookingExporter.export(userId, false, format, response);
+    }
+
+    @GetMapping("/owner/export")
+    public void exportByOwnerId(
+            @RequestHeader(USER_ID_HEADER) long ownerId,
+            @RequestParam(defaultValue = "NDJSON", required = false) BookingExportFormat format,
+            HttpServletResponse response
+    ) throws IOException {
+        log.info("Export bookings owner userId={}, format={}", ownerId, format);
+        bookingExporter.export(ownerId, true, format, response);
+    }
+
+    private List<BookingDto> toBookingDtoList(List<Booking> bookings) {
+        return bookings.stream()
                 .map(BookingMapper::toBookingDto)
                 .collect(Collectors.toList());
     }
+
+    private ResponseEntity<List<BookingDto>> toKeysetResponse(List<Booking> bookings, int size) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        // A full page means there may be more rows after the last one
+        if (bookings.size() == size) {
+            Booking last = bookings.get(bookings.size() - 1);
+            response.header(NEXT_CURSOR_HEADER, Cursor.of(last.getStart(), last.getId()).encode());
+        }
+        return response.body(toBookingDtoList(bookings));
+    }
 }
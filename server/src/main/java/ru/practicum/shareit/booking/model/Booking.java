@@ -16,7 +16,8 @@ import java.time.LocalDateTime;
 @ToString
 public class Booking {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "bookings_seq")
+    @SequenceGenerator(name = "bookings_seq", sequenceName = "bookings_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "start_date_time")
@@ -25,14 +26,20 @@ public class Booking {
     @Column(name = "end_date_time")
     private LocalDateTime end;
 
-    @ManyToOne
+    @ToString.Exclude
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "item_id")
     private Item item;
 
-    @ManyToOne
+    @ToString.Exclude
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "booker_id")
     private User booker;
 
     @Enumerated(value = EnumType.STRING)
     private BookingStatus status;
+
+    //Copy of item.owner.id, kept in sync by the (item_id, owner_id) foreign key
+    @Column(name = "owner_id")
+    private Long ownerId;
 }
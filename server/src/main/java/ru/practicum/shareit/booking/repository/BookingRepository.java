@@ -1,38 +1,179 @@
 package ru.practicum.shareit.booking.repository;
 
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.BookingStatus;
 
+import javax.persistence.QueryHint;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
 
 public interface BookingRepository extends JpaRepository<Booking, Long> {
+    String KEYSET = " and (b.start < :cursorStart or (b.start = :cursorStart and b.id < :cursorId))" +
+            " order by b.start desc, b.id desc";
+    //Pointer materialized on the item while still valid, ordered lookup once it has expired
+    String POINTERS_VALID = "i.booking_pointers_until IS NULL OR i.booking_pointers_until > :now";
+    String LAST_BOOKING_ID = "CASE WHEN " + POINTERS_VALID + " THEN i.last_booking_id" +
+            " ELSE (SELECT l.id FROM bookings l WHERE l.item_id = i.id AND l.end_date_time < :now" +
+            " ORDER BY l.end_date_time DESC, l.id DESC LIMIT 1) END";
+    String NEXT_BOOKING_ID = "CASE WHEN " + POINTERS_VALID + " THEN i.next_booking_id" +
+            " ELSE (SELECT n.id FROM bookings n WHERE n.item_id = i.id AND n.start_date_time > :now" +
+            " ORDER BY n.start_date_time, n.id LIMIT 1) END";
+    int EXPORT_FETCH_SIZE = 500;
+    //Exclusion constraint of overlapping waiting and approved bookings, PostgreSQL only
+    String PERIOD_EXCLUSION = "ex_bookings_item_period";
+
+    @Override
+    @EntityGraph(attributePaths = "item")
+    Optional<Booking> findById(Long id);
+
+    @EntityGraph(attributePaths = "item")
     List<Booking> findByBooker_IdOrderByIdDesc(Long id, Pageable pageable);
 
-    List<Booking> findByItem_Owner_IdOrderByIdDesc(Long id, Pageable pageable);
+    @EntityGraph(attributePaths = "item")
+    List<Booking> findByOwnerIdOrderByIdDesc(Long id, Pageable pageable);
+
+    @Query(value = "SELECT b.* FROM items i JOIN bookings b ON b.id = " + LAST_BOOKING_ID +
+            " WHERE i.id = :itemId", nativeQuery = true)
+    Booking findLastByItemId(@Param("itemId") Long itemId, @Param("now") LocalDateTime now);
+
+    @Query(value = "SELECT b.* FROM items i JOIN bookings b ON b.id = " + NEXT_BOOKING_ID +
+            " WHERE i.id = :itemId", nativeQuery = true)
+    Booking findNextByItemId(@Param("itemId") Long itemId, @Param("now") LocalDateTime now);
+
+    @Query(value = "SELECT b.* FROM items i JOIN bookings b ON b.id = " + LAST_BOOKING_ID +
+            " WHERE i.id IN (:itemIds)", nativeQuery = true)
+    List<Booking> findLastByItemIds(@Param("itemIds") Collection<Long> itemIds, @Param("now") LocalDateTime now);
 
-    Booking findFirstByItem_IdAndEndBeforeOrderByEndDesc(Long itemId, LocalDateTime end);
+    @Query(value = "SELECT b.* FROM items i JOIN bookings b ON b.id = " + NEXT_BOOKING_ID +
+            " WHERE i.id IN (:itemIds)", nativeQuery = true)
+    List<Booking> findNextByItemIds(@Param("itemIds") Collection<Long> itemIds, @Param("now") LocalDateTime now);
 
-    Booking findFirstByItem_IdAndStartAfterOrderByStartAsc(Long itemId, LocalDateTime start);
+    @EntityGraph(attributePaths = "item")
+    List<Booking> findByIdInOrderById(Collection<Long> ids);
 
+    //Compare-and-set on the status, only the owner moves a waiting booking
+    @Modifying(clearAutomatically = true)
+    @Query("update Booking b set b.status = :status where b.id = :id and b.ownerId = :ownerId" +
+            " and b.status = ru.practicum.shareit.booking.model.BookingStatus.WAITING")
+    int decide(@Param("id") Long id, @Param("ownerId") Long ownerId, @Param("status") BookingStatus status);
+
+    @Query(value = "SELECT id FROM bookings WHERE id IN (:ids) AND owner_id = :ownerId AND status = 'WAITING'" +
+            " ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<Long> lockWaiting(@Param("ids") Collection<Long> ids, @Param("ownerId") Long ownerId);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update Booking b set b.status = :status where b.id in :ids")
+    int decideAll(@Param("ids") Collection<Long> ids, @Param("status") BookingStatus status);
+
+    List<Booking> findByItem_IdAndStatusInAndEndAfter(Long itemId, Collection<BookingStatus> statuses,
+                                                     LocalDateTime end);
+
+    @EntityGraph(attributePaths = "item")
     List<Booking> findByBooker_IdAndStartBeforeAndEndAfter(
             Long bookerId, LocalDateTime start, LocalDateTime end, Pageable pageable);
 
-    List<Booking> findByItem_Owner_IdAndStartBeforeAndEndAfter(
+    @EntityGraph(attributePaths = "item")
+    List<Booking> findByOwnerIdAndStartBeforeAndEndAfter(
             Long bookerId, LocalDateTime start, LocalDateTime end, Pageable pageable);
 
+    @EntityGraph(attributePaths = "item")
     List<Booking> findByBooker_IdAndEndBefore(Long bookerId, LocalDateTime end, Pageable pageable);
 
-    List<Booking> findByItem_Owner_IdAndEndBefore(Long ownerId, LocalDateTime end, Pageable pageable);
+    @EntityGraph(attributePaths = "item")
+    List<Booking> findByOwnerIdAndEndBefore(Long ownerId, LocalDateTime end, Pageable pageable);
 
+    @EntityGraph(attributePaths = "item")
     List<Booking> findByBooker_IdAndStartAfterOrderByStartDesc(Long bookerId, LocalDateTime start, Pageable pageable);
 
-    List<Booking> findByItem_Owner_IdAndStartAfterOrderByStartDesc(Long bookerId, LocalDateTime start,
-                                                                   Pageable pageable);
+    @EntityGraph(attributePaths = "item")
+    List<Booking> findByOwnerIdAndStartAfterOrderByStartDesc(Long bookerId, LocalDateTime start,
+                                                             Pageable pageable);
 
+    @EntityGraph(attributePaths = "item")
     List<Booking> findByBooker_IdAndStatus(Long bookerId, BookingStatus status, Pageable pageable);
 
-    List<Booking> findByItem_Owner_IdAndStatus(Long bookerId, BookingStatus status, Pageable pageable);
+    @EntityGraph(attributePaths = "item")
+    List<Booking> findByOwnerIdAndStatus(Long bookerId, BookingStatus status, Pageable pageable);
+
+    @EntityGraph(attributePaths = "item")
+    @Query("select b from Booking b where b.booker.id = :bookerId" + KEYSET)
+    List<Booking> findPageByBooker(@Param("bookerId") Long bookerId, @Param("cursorStart") LocalDateTime cursorStart,
+                                   @Param("cursorId") Long cursorId, Pageable pageable);
+
+    @EntityGraph(attributePaths = "item")
+    @Query("select b from Booking b where b.booker.id = :bookerId and b.end < :now" + KEYSET)
+    List<Booking> findPastPageByBooker(@Param("bookerId") Long bookerId, @Param("now") LocalDateTime now,
+                                       @Param("cursorStart") LocalDateTime cursorStart,
+                                       @Param("cursorId") Long cursorId, Pageable pageable);
+
+    @EntityGraph(attributePaths = "item")
+    @Query("select b from Booking b where b.booker.id = :bookerId and b.start < :now and b.end > :now" + KEYSET)
+    List<Booking> findCurrentPageByBooker(@Param("bookerId") Long bookerId, @Param("now") LocalDateTime now,
+                                          @Param("cursorStart") LocalDateTime cursorStart,
+                                          @Param("cursorId") Long cursorId, Pageable pageable);
+
+    @EntityGraph(attributePaths = "item")
+    @Query("select b from Booking b where b.booker.id = :bookerId and b.start > :now" + KEYSET)
+    List<Booking> findFuturePageByBooker(@Param("bookerId") Long bookerId, @Param("now") LocalDateTime now,
+                                         @Param("cursorStart") LocalDateTime cursorStart,
+                                         @Param("cursorId") Long cursorId, Pageable pageable);
+
+    @EntityGraph(attributePaths = "item")
+    @Query("select b from Booking b where b.booker.id = :bookerId and b.status = :status" + KEYSET)
+    List<Booking> findStatusPageByBooker(@Param("bookerId") Long bookerId, @Param("status") BookingStatus status,
+                                         @Param("cursorStart") LocalDateTime cursorStart,
+                                         @Param("cursorId") Long cursorId, Pageable pageable);
+
+    @EntityGraph(attributePaths = "item")
+    @Query("select b from Booking b where b.ownerId = :ownerId" + KEYSET)
+    List<Booking> findPageByOwner(@Param("ownerId") Long ownerId, @Param("cursorStart") LocalDateTime cursorStart,
+                                  @Param("cursorId") Long cursorId, Pageable pageable);
+
+    @EntityGraph(attributePaths = "item")
+    @Query("select b from Booking b where b.ownerId = :ownerId and b.end < :now" + KEYSET)
+    List<Booking> findPastPageByOwner(@Param("ownerId") Long ownerId, @Param("now") LocalDateTime now,
+                                      @Param("cursorStart") LocalDateTime cursorStart,
+                                      @Param("cursorId") Long cursorId, Pageable pageable);
+
+    @EntityGraph(attributePaths = "item")
+    @Query("select b from Booking b where b.ownerId = :ownerId and b.start < :now and b.end > :now" + KEYSET)
+    List<Booking> findCurrentPageByOwner(@Param("ownerId") Long ownerId, @Param("now") LocalDateTime now,
+                                         @Param("cursorStart") LocalDateTime cursorStart,
+                                         @Param("cursorId") Long cursorId, Pageable pageable);
+
+    @EntityGraph(attributePaths = "item")
+    @Query("select b from Booking b where b.ownerId = :ownerId and b.start > :now" + KEYSET)
+    List<Booking> findFuturePageByOwner(@Param("ownerId") Long ownerId, @Param("now") LocalDateTime now,
+                                        @Param("cursorStart") LocalDateTime cursorStart,
+                                        @Param("cursorId") Long cursorId, Pageable pageable);
+
+    @EntityGraph(attributePaths = "item")
+    @Query("select b from Booking b where b.ownerId = :ownerId and b.status = :status" + KEYSET)
+    List<Booking> findStatusPageByOwner(@Param("ownerId") Long ownerId, @Param("status") BookingStatus status,
+                                        @Param("cursorStart") LocalDateTime cursorStart,
+                                        @Param("cursorId") Long cursorId, Pageable pageable);
+
+    //Forward-only cursor over the whole history, read in EXPORT_FETCH_SIZE rows at a time
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+            @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("select b from Booking b join fetch b.item where b.booker.id = :bookerId order by b.start, b.id")
+    Stream<Booking> streamByBooker(@Param("bookerId") Long bookerId);
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+            @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("select b from Booking b join fetch b.item where b.ownerId = :ownerId order by b.start, b.id")
+    Stream<Booking> streamByOwner(@Param("ownerId") Long ownerId);
 }
@@ -0,0 +1,111 @@
+package ru.practicum.shareit.booking.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.dto.BookingExportFormat;
+import ru.practicum.shareit.booking.dto.BookingMapper;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.user.service.UserExistence;
+
+import javax.persistence.EntityManager;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import static ru.practicum.shareit.booking.repository.BookingRepository.EXPORT_FETCH_SIZE;
+
+@Slf4j
+@Component
+public class BookingExporter {
+    private static final String CSV_HEADER = "id,start,end,item_id,item_name,booker_id,status";
+
+    private final BookingRepository bookingRepository;
+    private final UserExistence userExistence;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+
+    public BookingExporter(BookingRepository bookingRepository, UserExistence userExistence,
+                           ObjectMapper objectMapper, EntityManager entityManager,
+                           PlatformTransactionManager transactionManager) {
+        this.bookingRepository = bookingRepository;
+        this.userExistence = userExistence;
+        this.objectMapper = objectMapper;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    //Writes every booking of the booker (or owner) as it is read, the response is never held whole
+    public void export(long userId, boolean owner, BookingExportFormat format, HttpServletResponse response)
+            throws IOException {
+        //Checked before anything is written, a missing user is still answered with 404
+        userExistence.check(userId);
+        response.setContentType(format.getContentType());
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename("bookings." + format.getExtension())
+                .build()
+                .toString());
+        Writer writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+        if (format == BookingExportFormat.CSV)
+            writer.write(CSV_HEADER + "\n");
+        Long count;
+        try {
+            count = transactionTemplate.execute(status -> write(userId, owner, format, writer));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+        log.info("Exported {} bookings of {} {}", count, owner ? "owner" : "booker", userId);
+    }
+
+    private long write(long userId, boolean owner, BookingExportFormat format, Writer writer) {
+        long count = 0;
+        try (Stream<Booking> bookings = owner ? bookingRepository.streamByOwner(userId) :
+                bookingRepository.streamByBooker(userId)) {
+            Iterator<Booking> iterator = bookings.iterator();
+            while (iterator.hasNext()) {
+                writer.write(format == BookingExportFormat.CSV ? toCsv(iterator.next()) :
+                        objectMapper.writeValueAsString(BookingMapper.toBookingDto(iterator.next())));
+                writer.write('\n');
+                //Rows already written are dropped from the persistence context, memory stays at one fetch
+                if (++count % EXPORT_FETCH_SIZE == 0)
+                    entityManager.clear();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return count;
+    }
+
+    private static String toCsv(Booking booking) {
+        return String.join(",",
+                String.valueOf(booking.getId()),
+                DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(booking.getStart()),
+                DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(booking.getEnd()),
+                String.valueOf(booking.getItem().getId()),
+                csvField(booking.getItem().getName()),
+                String.valueOf(booking.getBooker().getId()),
+                booking.getStatus().name());
+    }
+
+    private static String csvField(String value) {
+        if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r"))
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        return value;
+    }
+}
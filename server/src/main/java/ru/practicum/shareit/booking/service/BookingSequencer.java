@@ -0,0 +1,300 @@
+package ru.practicum.shareit.booking.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.exception.ExistsElementException;
+import ru.practicum.shareit.exception.OverloadException;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.util.Constraints;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Component
+public class BookingSequencer {
+    private static final List<BookingStatus> ACTIVE = List.of(BookingStatus.WAITING, BookingStatus.APPROVED);
+
+    private final BookingRepository bookingRepository;
+    private final UserRepository userRepository;
+    private final ItemRepository itemRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int laneCount;
+    private final int queueCapacity;
+    private final int batchSize;
+    private final long timeoutMs;
+    private final List<Lane> lanes = new ArrayList<>();
+    //Waiting and approved bookings per item, changed only by the lane owning the item. Items not booked for a
+    //while are dropped and reloaded on their next booking
+    private final Cache<Long, List<Booking>> views;
+
+    public BookingSequencer(BookingRepository bookingRepository, UserRepository userRepository,
+                            ItemRepository itemRepository, PlatformTransactionManager transactionManager,
+                            @Value("${shareit.bookings.sequencer.enabled:false}") boolean enabled,
+                            @Value("${shareit.bookings.sequencer.lanes:8}") int laneCount,
+                            @Value("${shareit.bookings.sequencer.queue-capacity:256}") int queueCapacity,
+                            @Value("${shareit.bookings.sequencer.batch-size:16}") int batchSize,
+                            @Value("${shareit.bookings.sequencer.timeout-ms:5000}") long timeoutMs,
+                            @Value("${shareit.bookings.sequencer.view-max-items:10000}") long viewMaxItems,
+                            @Value("${shareit.bookings.sequencer.view-expire-ms:600000}") long viewExpireMs) {
+        this.bookingRepository = bookingRepository;
+        this.userRepository = userRepository;
+        this.itemRepository = itemRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.laneCount = laneCount;
+        this.queueCapacity = queueCapacity;
+        this.batchSize = batchSize;
+        this.timeoutMs = timeoutMs;
+        this.views = Caffeine.newBuilder()
+                .maximumSize(viewMaxItems)
+                .expireAfterAccess(Duration.ofMillis(viewExpireMs))
+                .build();
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled)
+            return;
+        for (int i = 0; i < laneCount; i++) {
+            Lane lane = new Lane(new ArrayBlockingQueue<>(queueCapacity), "booking-lane-" + i);
+            lanes.add(lane);
+            lane.start();
+        }
+        log.info("Started {} booking lanes, queue capacity {}, batch size {}", laneCount, queueCapacity, batchSize);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        for (Lane lane : lanes)
+            lane.interrupt();
+        for (Lane lane : lanes)
+            lane.join(TimeUnit.SECONDS.toMillis(5));
+        //Bookings still queued are never written, their callers are answered instead of waiting out the timeout
+        List<Request> pending = new ArrayList<>();
+        for (Lane lane : lanes)
+            lane.queue.drainTo(pending);
+        for (Request request : pending)
+            if (request.claim())
+                request.result.completeExceptionally(
+                        new OverloadException("Bookings are not accepted now, try again later"));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Booking submit(long bookerId, Booking booking) {
+        Long itemId = booking.getItem().getId();
+        Lane lane = lanes.get(Math.floorMod(Objects.hashCode(itemId), lanes.size()));
+        Request request = new Request(bookerId, booking);
+        if (!lane.queue.offer(request))
+            throw new OverloadException("Too many bookings for this item, try again later");
+        try {
+            try {
+                return request.result.get(timeoutMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                //Only a booking still queued times out, one the lane took may be written and is waited for once more
+                if (request.claim())
+                    throw new OverloadException("Booking was not processed in time, try again later");
+                return awaitTaken(request);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new OverloadException("Booking was interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private Booking awaitTaken(Request request) throws InterruptedException, ExecutionException {
+        try {
+            return request.result.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new OverloadException("Booking is still being processed, check your bookings later");
+        }
+    }
+
+    //Called when a booking leaves the waiting/approved set outside the lanes, the view reloads after commit
+    public void forget(long itemId) {
+        views.invalidate(itemId);
+        if (TransactionSynchronizationManager.isSynchronizationActive())
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    views.invalidate(itemId);
+                }
+            });
+    }
+
+    private void drop(Request request) {
+        if (request.itemId() != null)
+            views.invalidate(request.itemId());
+    }
+
+    private void process(List<Request> batch) {
+        //Requests their callers gave up on while queued are skipped, the rest are answered by this batch
+        batch.removeIf(request -> !request.claim());
+        if (batch.isEmpty())
+            return;
+        try {
+            transactionTemplate.executeWithoutResult(status -> write(batch));
+            batch.forEach(Request::complete);
+        } catch (RuntimeException e) {
+            //A database error aborts the whole batch, write its bookings one by one instead
+            log.warn("Booking batch of {} failed, retrying one by one: {}", batch.size(), e.getMessage());
+            batch.forEach(this::drop);
+            for (Request request : batch) {
+                request.booking.setId(null);
+                try {
+                    transactionTemplate.executeWithoutResult(status -> write(List.of(request)));
+                    request.complete();
+                } catch (DataIntegrityViolationException ex) {
+                    drop(request);
+                    boolean overlaps = Constraints.isViolated(ex, BookingRepository.PERIOD_EXCLUSION);
+                    request.result.completeExceptionally(overlaps
+                            ? new ExistsElementException("Item is already booked for these dates") : ex);
+                } catch (RuntimeException ex) {
+                    drop(request);
+                    request.result.completeExceptionally(ex);
+                }
+            }
+        }
+    }
+
+    private void write(List<Request> batch) {
+        itemRepository.lockForBookings(batch.stream()
+                .map(Request::itemId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet()));
+        Set<Long> bookedItemIds = new LinkedHashSet<>();
+        for (Request request : batch) {
+            request.saved = null;
+            request.error = null;
+            try {
+                Booking booking = prepare(request);
+                LocalDateTime now = LocalDateTime.now();
+                List<Booking> view = views.get(booking.getItem().getId(), id ->
+                        new ArrayList<>(bookingRepository.findByItem_IdAndStatusInAndEndAfter(id, ACTIVE, now)));
+                //Ended bookings can no longer overlap a new one
+                view.removeIf(b -> !b.getEnd().isAfter(now));
+                if (view.stream().anyMatch(b -> b.getStart().isBefore(booking.getEnd())
+                        && booking.getStart().isBefore(b.getEnd())))
+                    throw new ExistsElementException("Item is already booked for these dates");
+                request.saved = bookingRepository.save(booking);
+                view.add(request.saved);
+                bookedItemIds.add(booking.getItem().getId());
+            } catch (DataAccessException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                request.error = e;
+            }
+        }
+        if (!bookedItemIds.isEmpty())
+            itemRepository.refreshBookingPointers(bookedItemIds, LocalDateTime.now());
+    }
+
+    private Booking prepare(Request request) {
+        Booking booking = request.booking;
+        User booker = userRepository.findById(request.bookerId)
+                .orElseThrow(() -> new NoSuchElementException("User not found"));
+        Item item = itemRepository.findById(request.itemId())
+                .orElseThrow(() -> new NoSuchElementException("Item not found"));
+        booking.setBooker(booker);
+        booking.setItem(item);
+        booking.setOwnerId(item.getOwner().getId());
+        booking.setStatus(BookingStatus.WAITING);
+        BookingServiceImpl.validation(booking);
+        log.info("Create {}", booking);
+        return booking;
+    }
+
+    private final class Lane extends Thread {
+        private final BlockingQueue<Request> queue;
+
+        private Lane(BlockingQueue<Request> queue, String name) {
+            super(name);
+            this.queue = queue;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            List<Request> batch = new ArrayList<>(batchSize);
+            try {
+                while (!isInterrupted()) {
+                    batch.add(queue.take());
+                    queue.drainTo(batch, batchSize - 1);
+                    process(batch);
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                log.info("Booking lane {} stopped", getName());
+            }
+        }
+    }
+
+    private static final class Request {
+        private final long bookerId;
+        private final Booking booking;
+        private final CompletableFuture<Booking> result = new CompletableFuture<>();
+        //Taken either by the lane to write the booking or by the caller to give up on it, never by both
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private Booking saved;
+        private RuntimeException error;
+
+        private Request(long bookerId, Booking booking) {
+            this.bookerId = bookerId;
+            this.booking = booking;
+        }
+
+        private boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+
+        private Long itemId() {
+            return booking.getItem().getId();
+        }
+
+        private void complete() {
+            if (error != null)
+                result.completeExceptionally(error);
+            else
+                result.complete(saved);
+        }
+    }
+}
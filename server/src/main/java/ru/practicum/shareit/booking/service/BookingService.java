@@ -2,21 +2,34 @@ package ru.practicum.shareit.booking.service;
 
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.BookingState;
+import ru.practicum.shareit.util.Cursor;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface BookingService {
     Booking create(long bookerId, Booking booking);
 
     Booking approveBooking(long bookerId, long bookingId, Boolean approved);
 
+    List<Booking> approveBookings(long ownerId, Collection<Long> bookingIds, boolean approved);
+
     Booking getByIdEndUserId(long bookingId, long userId);
 
     List<Booking> findAllByUserId(long userId, BookingState state, int from, int size);
 
     List<Booking> findAllByOwnerId(long ownerId, BookingState state, int from, int size);
 
+    List<Booking> findAllByUserId(long userId, BookingState state, Cursor cursor, int size);
+
+    List<Booking> findAllByOwnerId(long ownerId, BookingState state, Cursor cursor, int size);
+
     Booking findLastBookingByItemId(long itemId);
 
     Booking findNextBookingByItemId(long itemId);
+
+    Map<Long, Booking> findLastBookingsByItemIds(Collection<Long> itemIds);
+
+    Map<Long, Booking> findNextBookingsByItemIds(Collection<Long> itemIds);
 }
@@ -2,23 +2,36 @@ package ru.practicum.shareit.booking.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.BookingState;
 import ru.practicum.shareit.booking.model.BookingStatus;
 import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.exception.ExistsElementException;
 import ru.practicum.shareit.exception.ValidateException;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.ItemRepository;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.user.service.UserExistence;
+import ru.practicum.shareit.util.Constraints;
+import ru.practicum.shareit.util.Cursor;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static ru.practicum.shareit.util.Constant.MAX_BULK_DECISIONS;
 
 @Service
 @RequiredArgsConstructor
@@ -27,8 +40,11 @@ public class BookingServiceImpl implements BookingService {
     private final BookingRepository bookingRepository;
     private final UserRepository userRepository;
     private final ItemRepository itemRepository;
+    private final UserExistence userExistence;
+    private final BookingSequencer bookingSequencer;
 
     @Override
+    @Transactional
     public Booking create(long bookerId, Booking booking) {
         User booker = userRepository.findById(bookerId)
                 .orElseThrow(() -> new NoSuchElementException("User not found"));
@@ -36,41 +52,71 @@ public class BookingServiceImpl implements BookingService {
                 .orElseThrow(() -> new NoSuchElementException("Item not found"));
         booking.setBooker(booker);
         booking.setItem(item);
+        booking.setOwnerId(item.getOwner().getId());
         booking.setStatus(BookingStatus.WAITING);
         validation(booking);
         log.info("Create {}", booking);
-        return bookingRepository.save(booking);
+        itemRepository.lockForBookings(List.of(item.getId()));
+        Booking savedBooking;
+        //Overlaps are rejected by the exclusion constraint on bookings, flushed to see it here
+        try {
+            savedBooking = bookingRepository.saveAndFlush(booking);
+        } catch (DataIntegrityViolationException e) {
+            if (Constraints.isViolated(e, BookingRepository.PERIOD_EXCLUSION))
+                throw new ExistsElementException("Item is already booked for these dates");
+            throw e;
+        }
+        itemRepository.refreshBookingPointers(item.getId(), LocalDateTime.now());
+        return savedBooking;
     }
 
     @Override
+    @Transactional
     public Booking approveBooking(long bookerId, long bookingId, Boolean approved) {
+        BookingStatus status = Boolean.TRUE.equals(approved) ? BookingStatus.APPROVED : BookingStatus.REJECTED;
+        //Concurrent decisions race on the row, lookups only explain a rejected update
+        if (approved == null || bookingRepository.decide(bookingId, bookerId, status) == 0) {
+            Booking booking = bookingRepository.findById(bookingId).orElseThrow(
+                    () -> new NoSuchElementException("Booking not found"));
+            userExistence.check(bookerId);
+            if (approved == null)
+                throw new NoSuchElementException("approved is null");
+            if (!booking.getItem().getOwner().getId().equals(bookerId))
+                throw new NoSuchElementException("User not owner item");
+            throw new ValidateException("Booking status is already " + booking.getStatus().name().toLowerCase());
+        }
         Booking booking = bookingRepository.findById(bookingId).orElseThrow(
                 () -> new NoSuchElementException("Booking not found"));
-        userRepository.findById(bookerId).orElseThrow(
-                () -> new NoSuchElementException("User not found"));
-        if (approved == null)
-            throw new NoSuchElementException("approved is null");
-        if (!booking.getItem().getOwner().getId().equals(bookerId))
-            throw new NoSuchElementException("User not owner item");
-        if (approved && booking.getStatus().equals(BookingStatus.APPROVED))
-            throw new ValidateException("Booking status is already approved");
-        if (!approved && booking.getStatus().equals(BookingStatus.REJECTED))
-            throw new ValidateException("Booking status is already rejected");
-        if (approved) {
-            booking.setStatus(BookingStatus.APPROVED);
-        } else {
-            booking.setStatus(BookingStatus.REJECTED);
-        }
         log.info("Change status {}", booking);
-        return bookingRepository.save(booking);
+        afterDecision(List.of(booking), status);
+        return booking;
+    }
+
+    @Override
+    @Transactional
+    public List<Booking> approveBookings(long ownerId, Collection<Long> bookingIds, boolean approved) {
+        if (bookingIds.size() > MAX_BULK_DECISIONS)
+            throw new ValidateException("No more than " + MAX_BULK_DECISIONS + " bookings can be decided at once");
+        userExistence.check(ownerId);
+        if (bookingIds.isEmpty())
+            return List.of();
+        BookingStatus status = approved ? BookingStatus.APPROVED : BookingStatus.REJECTED;
+        //Locked in id order, so the update changes exactly the bookings still waiting
+        List<Long> waitingIds = bookingRepository.lockWaiting(bookingIds, ownerId);
+        if (waitingIds.isEmpty())
+            return List.of();
+        bookingRepository.decideAll(waitingIds, status);
+        List<Booking> bookings = bookingRepository.findByIdInOrderById(waitingIds);
+        log.info("Change status to {} of bookings {}", status, waitingIds);
+        afterDecision(bookings, status);
+        return bookings;
     }
 
     @Override
     public Booking getByIdEndUserId(long bookingId, long userId) {
         Booking booking = bookingRepository.findById(bookingId).orElseThrow(
                 () -> new NoSuchElementException("Booking not found"));
-        User user = userRepository.findById(userId).orElseThrow(
-                () -> new NoSuchElementException("User not found"));
+        userExistence.check(userId);
         if (booking.getBooker().getId().equals(userId) || booking.getItem().getOwner().getId().equals(userId)) {
             return booking;
         } else {
@@ -116,25 +162,25 @@ public class BookingServiceImpl implements BookingService {
         Pageable pageable = PageRequest.of(from / size, size);
         switch (state) {
             case ALL:
-                bookingList = bookingRepository.findByItem_Owner_IdOrderByIdDesc(ownerId, pageable);
+                bookingList = bookingRepository.findByOwnerIdOrderByIdDesc(ownerId, pageable);
                 break;
             case PAST:
-                bookingList = bookingRepository.findByItem_Owner_IdAndEndBefore(ownerId, now, pageable);
+                bookingList = bookingRepository.findByOwnerIdAndEndBefore(ownerId, now, pageable);
                 break;
             case CURRENT:
-                bookingList = bookingRepository.findByItem_Owner_IdAndStartBeforeAndEndAfter(ownerId, now, now,
+                bookingList = bookingRepository.findByOwnerIdAndStartBeforeAndEndAfter(ownerId, now, now,
                         pageable);
                 break;
             case FUTURE:
-                bookingList = bookingRepository.findByItem_Owner_IdAndStartAfterOrderByStartDesc(ownerId, now,
+                bookingList = bookingRepository.findByOwnerIdAndStartAfterOrderByStartDesc(ownerId, now,
                         pageable);
                 break;
             case WAITING:
-                bookingList = bookingRepository.findByItem_Owner_IdAndStatus(ownerId, BookingStatus.WAITING,
+                bookingList = bookingRepository.findByOwnerIdAndStatus(ownerId, BookingStatus.WAITING,
                         pageable);
                 break;
             case REJECTED:
-                bookingList = bookingRepository.findByItem_Owner_IdAndStatus(ownerId, BookingStatus.REJECTED,
+                bookingList = bookingRepository.findByOwnerIdAndStatus(ownerId, BookingStatus.REJECTED,
                         pageable);
                 break;
         }
@@ -143,17 +189,109 @@ public class BookingServiceImpl implements BookingService {
         return bookingList;
     }
 
+    @Override
+    public List<Booking> findAllByUserId(long userId, BookingState state, Cursor cursor, int size) {
+        List<Booking> bookingList = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime cursorStart = cursor.getKeyOrMax();
+        long cursorId = cursor.getIdOrMax();
+        Pageable pageable = PageRequest.of(0, size);
+        switch (state) {
+            case ALL:
+                bookingList = bookingRepository.findPageByBooker(userId, cursorStart, cursorId, pageable);
+                break;
+            case PAST:
+                bookingList = bookingRepository.findPastPageByBooker(userId, now, cursorStart, cursorId, pageable);
+                break;
+            case CURRENT:
+                bookingList = bookingRepository.findCurrentPageByBooker(userId, now, cursorStart, cursorId, pageable);
+                break;
+            case FUTURE:
+                bookingList = bookingRepository.findFuturePageByBooker(userId, now, cursorStart, cursorId, pageable);
+                break;
+            case WAITING:
+                bookingList = bookingRepository.findStatusPageByBooker(userId, BookingStatus.WAITING, cursorStart,
+                        cursorId, pageable);
+                break;
+            case REJECTED:
+                bookingList = bookingRepository.findStatusPageByBooker(userId, BookingStatus.REJECTED, cursorStart,
+                        cursorId, pageable);
+                break;
+        }
+        return bookingList;
+    }
+
+    @Override
+    public List<Booking> findAllByOwnerId(long ownerId, BookingState state, Cursor cursor, int size) {
+        List<Booking> bookingList = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime cursorStart = cursor.getKeyOrMax();
+        long cursorId = cursor.getIdOrMax();
+        Pageable pageable = PageRequest.of(0, size);
+        switch (state) {
+            case ALL:
+                bookingList = bookingRepository.findPageByOwner(ownerId, cursorStart, cursorId, pageable);
+                break;
+            case PAST:
+                bookingList = bookingRepository.findPastPageByOwner(ownerId, now, cursorStart, cursorId, pageable);
+                break;
+            case CURRENT:
+                bookingList = bookingRepository.findCurrentPageByOwner(ownerId, now, cursorStart, cursorId, pageable);
+                break;
+            case FUTURE:
+                bookingList = bookingRepository.findFuturePageByOwner(ownerId, now, cursorStart, cursorId, pageable);
+                break;
+            case WAITING:
+                bookingList = bookingRepository.findStatusPageByOwner(ownerId, BookingStatus.WAITING, cursorStart,
+                        cursorId, pageable);
+                break;
+            case REJECTED:
+                bookingList = bookingRepository.findStatusPageByOwner(ownerId, BookingStatus.REJECTED, cursorStart,
+                        cursorId, pageable);
+                break;
+        }
+        return bookingList;
+    }
+
     @Override
     public Booking findLastBookingByItemId(long itemId) {
-        return bookingRepository.findFirstByItem_IdAndEndBeforeOrderByEndDesc(itemId, LocalDateTime.now());
+        return bookingRepository.findLastByItemId(itemId, LocalDateTime.now());
     }
 
     @Override
     public Booking findNextBookingByItemId(long itemId) {
-        return bookingRepository.findFirstByItem_IdAndStartAfterOrderByStartAsc(itemId, LocalDateTime.now());
+        return bookingRepository.findNextByItemId(itemId, LocalDateTime.now());
+    }
+
+    @Override
+    public Map<Long, Booking> findLastBookingsByItemIds(Collection<Long> itemIds) {
+        if (itemIds.isEmpty())
+            return Map.of();
+        return groupByItemId(bookingRepository.findLastByItemIds(itemIds, LocalDateTime.now()));
+    }
+
+    @Override
+    public Map<Long, Booking> findNextBookingsByItemIds(Collection<Long> itemIds) {
+        if (itemIds.isEmpty())
+            return Map.of();
+        return groupByItemId(bookingRepository.findNextByItemIds(itemIds, LocalDateTime.now()));
+    }
+
+    private Map<Long, Booking> groupByItemId(List<Booking> bookings) {
+        return bookings.stream()
+                .collect(Collectors.toMap(booking -> booking.getItem().getId(), Function.identity()));
+    }
+
+    private void afterDecision(List<Booking> bookings, BookingStatus status) {
+        Set<Long> itemIds = bookings.stream()
+                .map(booking -> booking.getItem().getId())
+                .collect(Collectors.toSet());
+        //Pointers ignore the status, a decision leaves them as they are
+        if (status == BookingStatus.REJECTED)
+            itemIds.forEach(bookingSequencer::forget);
     }
 
-    private void validation(Booking booking) {
+    static void validation(Booking booking) {
         //Check available
         if (!booking.getItem().getAvailable())
             throw new ValidateException("Item is not available");
@@ -40,4 +40,10 @@ public class ErrorHandler {
         log.error(e.getMessage());
         return new ResponseEntity<>(new ErrorMessage(e.getMessage()), HttpStatus.BAD_REQUEST);
     }
+
+    @ExceptionHandler
+    public ResponseEntity<ErrorMessage> handleOverloadException(OverloadException e) {
+        log.error(e.getMessage());
+        return new ResponseEntity<>(new ErrorMessage(e.getMessage()), HttpStatus.SERVICE_UNAVAILABLE);
+    }
 }
@@ -0,0 +1,7 @@
+package ru.practicum.shareit.exception;
+
+public class OverloadException extends RuntimeException {
+    public OverloadException(String message) {
+        super(message);
+    }
+}
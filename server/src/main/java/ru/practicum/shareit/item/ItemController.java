@@ -2,17 +2,29 @@ package ru.practicum.shareit.item;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.service.BookingService;
 import ru.practicum.shareit.item.dto.*;
 import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.service.ItemImporter;
 import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.util.Cursor;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
+import static ru.practicum.shareit.util.Constant.NEXT_CURSOR_HEADER;
 import static ru.practicum.shareit.util.Constant.USER_ID_HEADER;
 
 @Slf4j
@@ -22,6 +34,9 @@ import static ru.practicum.shareit.util.Constant.USER_ID_HEADER;
 public class ItemController {
     private final ItemService itemService;
     private final BookingService bookingService;
+    private final ItemImporter itemImporter;
+    @Value("${shareit.items.card-query:false}")
+    private boolean cardQuery;
 
     @PostMapping
     public ItemDto create(
@@ -33,6 +48,16 @@ public class ItemController {
         return ItemMapper.toItemDto(itemService.create(userId, item));
     }
 
+    @PostMapping(path = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ItemImportResult importItems(
+            @RequestHeader(USER_ID_HEADER) long userId,
+            InputStream body
+    ) throws IOException {
+        log.info("Import items userId={}", userId);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        return itemImporter.importItems(userId, reader);
+    }
+
     @PatchMapping("/{itemId}")
     public ItemDto update(
             @RequestHeader(USER_ID_HEADER) long userId,
@@ -47,6 +72,9 @@ public class ItemController {
     @GetMapping("/{id}")
     public ItemDtoWithBooking getById(@RequestHeader(USER_ID_HEADER) long userId, @PathVariable long id) {
         log.info("Get item userId={}, itemId={}", userId, id);
+        // Single statement on PostgreSQL, separate lookups elsewhere
+        if (cardQuery)
+            return itemService.getCard(userId, id);
         Item item = itemService.getById(id);
         List<Comment> commentList = itemService.findCommentsByItemId(id);
         // Its owner fill Booking
@@ -62,32 +90,45 @@ public class ItemController {
     }
 
     @GetMapping
-    public List<ItemDtoWithBooking> getAllByUser(
+    public ResponseEntity<List<ItemDtoWithBooking>> getAllByUser(
             @RequestHeader(USER_ID_HEADER) long userId,
             @RequestParam(defaultValue = "0", required = false) int from,
-            @RequestParam(defaultValue = "10", required = false) int size
+            @RequestParam(defaultValue = "10", required = false) int size,
+            @RequestParam(required = false) String cursor
     ) {
-        log.info("Get items by user owner userId={}, from={}, size={}", userId, from, size);
-        return itemService.getAllByUser(userId, from, size).stream()
-                .map(item -> {
-                    List<Comment> commentList = itemService.findCommentsByItemId(item.getId());
-                    Booking lastBooking = bookingService.findLastBookingByItemId(item.getId());
-                    Booking nextBooking = bookingService.findNextBookingByItemId(item.getId());
-                    return ItemMapper.toItemDtoWithBooking(commentList, lastBooking, nextBooking, item);
-                })
+        log.info("Get items by user owner userId={}, from={}, size={}, cursor={}", userId, from, size, cursor);
+        List<Item> items = cursor == null
+                ? itemService.getAllByUser(userId, from, size)
+                : itemService.getAllByUser(userId, Cursor.decode(cursor), size);
+        List<Long> itemIds = items.stream()
+                .map(Item::getId)
+                .collect(Collectors.toList());
+        // Load comments and bookings for the whole page at once
+        Map<Long, List<Comment>> comments = itemService.findCommentsByItemIds(itemIds);
+        Map<Long, Booking> lastBookings = bookingService.findLastBookingsByItemIds(itemIds);
+        Map<Long, Booking> nextBookings = bookingService.findNextBookingsByItemIds(itemIds);
+        List<ItemDtoWithBooking> itemDtoList = items.stream()
+                .map(item -> ItemMapper.toItemDtoWithBooking(comments.getOrDefault(item.getId(), List.of()),
+                        lastBookings.get(item.getId()), nextBookings.get(item.getId()), item))
                 .collect(Collectors.toList());
+        return toResponse(itemDtoList, items, cursor, size);
     }
 
     @GetMapping("/search")
-    public List<ItemDto> searchByText(
+    public ResponseEntity<List<ItemDto>> searchByText(
             @RequestParam String text,
             @RequestParam(defaultValue = "0", required = false) int from,
-            @RequestParam(defaultValue = "10", required = false) int size
+            @RequestParam(defaultValue = "10", required = false) int size,
+            @RequestParam(required = false) String cursor
     ) {
-        log.info("Search items by text text={}, from={}, size={}", text, from, size);
-        return itemService.searchByText(text, from, size).stream()
+        log.info("Search items by text text={}, from={}, size={}, cursor={}", text, from, size, cursor);
+        List<Item> items = cursor == null
+                ? itemService.searchByText(text, from, size)
+                : itemService.searchByText(text, Cursor.decode(cursor), size);
+        List<ItemDto> itemDtoList = items.stream()
                 .map(ItemMapper::toItemDto)
                 .collect(Collectors.toList());
+        return toResponse(itemDtoList, items, cursor, size);
     }
 
     @PostMapping("/{itemId}/comment")
@@ -100,4 +141,14 @@ public class ItemController {
         Comment comment = CommentMapper.toComment(userId, itemId, commentDto);
         return CommentMapper.toCommentDto(itemService.addCommentToItem(comment));
     }
+
+    private <T> ResponseEntity<List<T>> toResponse(List<T> body, List<Item> items, String cursor, int size) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        // A full page in keyset mode means there may be more items after the last one
+        if (cursor != null && items.size() == size) {
+            Item last = items.get(items.size() - 1);
+            response.header(NEXT_CURSOR_HEADER, Cursor.of(null, last.getId()).encode());
+        }
+        return response.body(body);
+    }
 }
@@ -0,0 +1,73 @@
+package ru.practicum.shareit.item.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.item.dto.ItemDtoWithBooking;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+@RequiredArgsConstructor
+public class ItemCardRepository {
+    //Item, owner-only last/next booking and comments in one statement (PostgreSQL only)
+    private static final String CARD_QUERY = "SELECT i.id, i.name, i.description, i.available," +
+            " lb.id AS last_id, lb.booker_id AS last_booker_id, nb.id AS next_id, nb.booker_id AS next_booker_id," +
+            " c.comments" +
+            " FROM items i" +
+            " LEFT JOIN bookings lb ON i.owner_id = :userId AND lb.id = " + BookingRepository.LAST_BOOKING_ID +
+            " LEFT JOIN bookings nb ON i.owner_id = :userId AND nb.id = " + BookingRepository.NEXT_BOOKING_ID +
+            " LEFT JOIN LATERAL (SELECT coalesce(json_agg(json_build_object('id', cm.id, 'text', cm.text," +
+            " 'authorName', u.name, 'created', cm.created) ORDER BY cm.created DESC), '[]') AS comments" +
+            " FROM comments cm JOIN users u ON u.id = cm.author_id WHERE cm.item_id = i.id) c ON true" +
+            " WHERE i.id = :itemId";
+    private static final TypeReference<List<ItemDtoWithBooking.Comment>> COMMENTS = new TypeReference<>() {
+    };
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+
+    public Optional<ItemDtoWithBooking> findCard(long itemId, long userId, LocalDateTime now) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("itemId", itemId)
+                .addValue("userId", userId)
+                .addValue("now", now);
+        return jdbcTemplate.query(CARD_QUERY, params, (rs, rowNum) -> toCard(rs)).stream().findFirst();
+    }
+
+    private ItemDtoWithBooking toCard(ResultSet rs) throws SQLException {
+        try {
+            return ItemDtoWithBooking.builder()
+                    .id(rs.getLong("id"))
+                    .name(rs.getString("name"))
+                    .description(rs.getString("description"))
+                    .available(rs.getObject("available", Boolean.class))
+                    .lastBooking(toBooking(rs, "last_id", "last_booker_id"))
+                    .nextBooking(toBooking(rs, "next_id", "next_booker_id"))
+                    .comments(objectMapper.readValue(rs.getString("comments"), COMMENTS))
+                    .build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Malformed item card json", e);
+        }
+    }
+
+    private ItemDtoWithBooking.Booking toBooking(ResultSet rs, String idColumn, String bookerColumn)
+            throws SQLException {
+        Long id = rs.getObject(idColumn, Long.class);
+        if (id == null)
+            return null;
+        ItemDtoWithBooking.Booking booking = new ItemDtoWithBooking.Booking();
+        booking.setId(id);
+        booking.setBookerId(rs.getObject(bookerColumn, Long.class));
+        return booking;
+    }
+}
@@ -0,0 +1,69 @@
+package ru.practicum.shareit.item.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.user.model.User;
+
+import javax.persistence.EntityManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+@RequiredArgsConstructor
+public class ItemPatchRepository {
+    private static final String COLUMNS = "id, name, description, available, owner_id, request_id";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+    @Value("${shareit.updates.returning:false}")
+    private boolean returning;
+
+    //Sets only the non-null fields of the patch, empty when the item is missing or owned by someone else
+    @Transactional
+    public Optional<Item> update(long itemId, long ownerId, Item patch) {
+        List<String> columns = new ArrayList<>();
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("itemId", itemId)
+                .addValue("ownerId", ownerId);
+        if (patch.getName() != null) {
+            columns.add("name = :name");
+            params.addValue("name", patch.getName());
+        }
+        if (patch.getDescription() != null) {
+            columns.add("description = :description");
+            params.addValue("description", patch.getDescription());
+        }
+        if (patch.getAvailable() != null) {
+            columns.add("available = :available");
+            params.addValue("available", patch.getAvailable());
+        }
+        if (columns.isEmpty())
+            throw new IllegalArgumentException("Nothing to update");
+        String sql = "UPDATE items SET " + String.join(", ", columns) + " WHERE id = :itemId AND owner_id = :ownerId";
+        if (returning)
+            return jdbcTemplate.query(sql + " RETURNING " + COLUMNS, params, (rs, rowNum) -> toItem(rs))
+                    .stream().findFirst();
+        if (jdbcTemplate.update(sql, params) == 0)
+            return Optional.empty();
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM items WHERE id = :itemId", params,
+                (rs, rowNum) -> toItem(rs)).stream().findFirst();
+    }
+
+    //Owner and request are the persistence context's references, as on an item loaded by the repository
+    private Item toItem(ResultSet rs) throws SQLException {
+        Long requestId = rs.getObject("request_id", Long.class);
+        return new Item(rs.getLong("id"), rs.getString("name"), rs.getString("description"),
+                rs.getObject("available", Boolean.class),
+                entityManager.getReference(User.class, rs.getLong("owner_id")),
+                requestId == null ? null : entityManager.getReference(ItemRequest.class, requestId));
+    }
+}
@@ -2,17 +2,90 @@ package ru.practicum.shareit.item.repository;
 
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.shareit.item.model.Item;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 public interface ItemRepository extends JpaRepository<Item, Long> {
+    //Unique item names per owner
+    String OWNER_ITEM_NAME = "uq_owner_item_name";
+    //Pointers stay valid until the nearest future start or end of a booking of the item
+    String SET_BOOKING_POINTERS = "UPDATE items SET" +
+            " last_booking_id = (SELECT b.id FROM bookings b WHERE b.item_id = items.id AND b.end_date_time < :now" +
+            " ORDER BY b.end_date_time DESC, b.id DESC LIMIT 1)," +
+            " next_booking_id = (SELECT b.id FROM bookings b WHERE b.item_id = items.id AND b.start_date_time > :now" +
+            " ORDER BY b.start_date_time, b.id LIMIT 1)," +
+            " booking_pointers_until = (SELECT min(CASE WHEN b.start_date_time > :now THEN b.start_date_time" +
+            " ELSE b.end_date_time END) FROM bookings b WHERE b.item_id = items.id AND b.end_date_time >= :now)";
+
+    //Items are cached by id, the owner is loaded with them as the cached copy outlives the session
+    @Override
+    @EntityGraph(attributePaths = "owner")
+    Optional<Item> findById(Long id);
+
     List<Item> findByOwner_Id(Long id, Pageable pageable);
 
-    List<Item> findByNameContainsIgnoreCaseOrDescriptionContainsIgnoreCaseAndAvailableTrue(String name,
-                                                                                           String description,
-                                                                                           Pageable pageable);
+    List<Item> findByOwner_IdAndIdGreaterThanOrderByIdAsc(Long id, Long cursorId, Pageable pageable);
+
+    @Query("select i from Item i where i.available = true" +
+            " and (upper(i.name) like upper(:pattern) escape '\\'" +
+            " or upper(i.description) like upper(:pattern) escape '\\')")
+    List<Item> search(@Param("pattern") String pattern, Pageable pageable);
+
+    @Query(value = "SELECT i.* FROM items i WHERE i.available = true" +
+            " AND (i.search_vector @@ plainto_tsquery('simple', :text)" +
+            " OR i.name ILIKE :pattern OR i.description ILIKE :pattern)" +
+            " ORDER BY ts_rank(i.search_vector, plainto_tsquery('simple', :text)) DESC," +
+            " (i.name ILIKE :pattern) DESC, i.id", nativeQuery = true)
+    List<Item> searchFullText(@Param("text") String text, @Param("pattern") String pattern, Pageable pageable);
+
+    @Query("select i.name from Item i where i.owner.id = :ownerId and i.name in :names")
+    List<String> findNamesByOwner(@Param("ownerId") Long ownerId, @Param("names") Collection<String> names);
 
     List<Item> findByRequest_Id(Long id, Sort sort);
+
+    List<Item> findByRequest_IdIn(Collection<Long> ids, Sort sort);
+
+    @Query("select i from Item i where i.available = true" +
+            " and (upper(i.name) like upper(:pattern) escape '\\'" +
+            " or upper(i.description) like upper(:pattern) escape '\\')" +
+            " and i.id > :cursorId order by i.id")
+    List<Item> searchPage(@Param("pattern") String pattern, @Param("cursorId") Long cursorId, Pageable pageable);
+
+    @Query(value = "SELECT i.* FROM items i WHERE i.available = true" +
+            " AND (i.search_vector @@ plainto_tsquery('simple', :text)" +
+            " OR i.name ILIKE :pattern OR i.description ILIKE :pattern)" +
+            " AND i.id > :cursorId ORDER BY i.id", nativeQuery = true)
+    List<Item> searchFullTextPage(@Param("text") String text, @Param("pattern") String pattern,
+                                  @Param("cursorId") Long cursorId, Pageable pageable);
+
+    //Taken before the bookings of the items are written. The pointer update is a later statement, so under read
+    //committed it sees every booking committed by a writer that held the items before
+    @Query(value = "SELECT id FROM items WHERE id IN (:itemIds) ORDER BY id FOR UPDATE", nativeQuery = true)
+    List<Long> lockForBookings(@Param("itemIds") Collection<Long> itemIds);
+
+    @Modifying
+    @Transactional
+    @Query(value = SET_BOOKING_POINTERS + " WHERE id = :itemId", nativeQuery = true)
+    void refreshBookingPointers(@Param("itemId") Long itemId, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query(value = SET_BOOKING_POINTERS + " WHERE id IN (:itemIds)", nativeQuery = true)
+    void refreshBookingPointers(@Param("itemIds") Collection<Long> itemIds, @Param("now") LocalDateTime now);
+
+    //An item a booking writer changes meanwhile is rechecked once it commits, its new pointers are still valid
+    @Modifying
+    @Transactional
+    @Query(value = SET_BOOKING_POINTERS + " WHERE booking_pointers_until <= :now", nativeQuery = true)
+    int refreshExpiredBookingPointers(@Param("now") LocalDateTime now);
 }
@@ -0,0 +1,24 @@
+package ru.practicum.shareit.item.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.repository.ItemRepository;
+
+import java.time.LocalDateTime;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BookingPointerSweep {
+    private final ItemRepository itemRepository;
+
+    //Recompute last/next booking of items whose nearest booking boundary has passed
+    @Scheduled(fixedDelayString = "${shareit.items.booking-sweep-ms:60000}")
+    public void sweep() {
+        int refreshed = itemRepository.refreshExpiredBookingPointers(LocalDateTime.now());
+        if (refreshed > 0)
+            log.info("Refreshed booking pointers of {} items", refreshed);
+    }
+}
@@ -0,0 +1,215 @@
+package ru.practicum.shareit.item.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.exception.ValidateException;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemImportResult;
+import ru.practicum.shareit.item.dto.ItemMapper;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.request.repository.ItemRequestRepository;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.user.service.UserExistence;
+import ru.practicum.shareit.util.Constraints;
+
+import javax.persistence.EntityManager;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Slf4j
+@Component
+public class ItemImporter {
+    private final ItemRepository itemRepository;
+    private final ItemRequestRepository itemRequestRepository;
+    private final UserRepository userRepository;
+    private final ItemSearchIndex itemSearchIndex;
+    private final UserExistence userExistence;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+    private final int batchSize;
+
+    public ItemImporter(ItemRepository itemRepository, ItemRequestRepository itemRequestRepository,
+                        UserRepository userRepository, ItemSearchIndex itemSearchIndex,
+                        UserExistence userExistence, ObjectMapper objectMapper, EntityManager entityManager,
+                        PlatformTransactionManager transactionManager,
+                        @Value("${shareit.items.import.chunk-size:1000}") int chunkSize,
+                        @Value("${shareit.items.import.batch-size:100}") int batchSize) {
+        this.itemRepository = itemRepository;
+        this.itemRequestRepository = itemRequestRepository;
+        this.userRepository = userRepository;
+        this.itemSearchIndex = itemSearchIndex;
+        this.userExistence = userExistence;
+        this.objectMapper = objectMapper;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+        this.batchSize = batchSize;
+    }
+
+    //Reads one item per line, only the current chunk is held in memory
+    public ItemImportResult importItems(long ownerId, BufferedReader reader) throws IOException {
+        userExistence.check(ownerId);
+        ItemImportResult result = new ItemImportResult();
+        List<Line> chunk = new ArrayList<>(chunkSize);
+        long lineNumber = 0;
+        String text;
+        while ((text = reader.readLine()) != null) {
+            lineNumber++;
+            if (text.isBlank())
+                continue;
+            result.setReceived(result.getReceived() + 1);
+            try {
+                chunk.add(new Line(lineNumber, toItem(text)));
+            } catch (JsonProcessingException e) {
+                result.fail(lineNumber, "Malformed item json");
+            } catch (ValidateException e) {
+                result.fail(lineNumber, e.getMessage());
+            }
+            if (chunk.size() == chunkSize) {
+                write(ownerId, chunk, result);
+                chunk.clear();
+            }
+        }
+        if (!chunk.isEmpty())
+            write(ownerId, chunk, result);
+        //Lines failing the chunk checks are reported after malformed lines read later
+        result.getFailures().sort(Comparator.comparingLong(ItemImportResult.Failure::getLine));
+        log.info("Imported {} of {} items for owner {}", result.getCreated(), result.getReceived(), ownerId);
+        return result;
+    }
+
+    private Item toItem(String text) throws JsonProcessingException {
+        ItemDto itemDto = objectMapper.readValue(text, ItemDto.class);
+        if (itemDto.getName() == null || itemDto.getName().isBlank())
+            throw new ValidateException("Name is empty");
+        if (itemDto.getDescription() == null || itemDto.getDescription().isBlank())
+            throw new ValidateException("Description is empty");
+        if (itemDto.getAvailable() == null)
+            throw new ValidateException("Available is empty");
+        //Ids are always generated
+        Item item = ItemMapper.toItem(itemDto);
+        item.setId(null);
+        return item;
+    }
+
+    private void write(long ownerId, List<Line> chunk, ItemImportResult result) {
+        List<Line> valid = check(chunk, result);
+        if (valid.isEmpty())
+            return;
+        try {
+            transactionTemplate.executeWithoutResult(status -> save(ownerId, valid));
+            created(valid, result);
+            return;
+        } catch (DataIntegrityViolationException e) {
+            log.info("Item import chunk of {} was rejected: {}", valid.size(), e.getMessage());
+            if (!Constraints.isViolated(e, ItemRepository.OWNER_ITEM_NAME)) {
+                //Some line breaks another constraint, only writing them one by one tells which
+                writeEach(ownerId, valid, result);
+                return;
+            }
+        }
+        //Existing names are only looked up for a chunk that hit one, fresh imports skip the query
+        Set<String> names = new HashSet<>(itemRepository.findNamesByOwner(ownerId, valid.stream()
+                .map(line -> line.item.getName())
+                .collect(Collectors.toSet())));
+        List<Line> fresh = new ArrayList<>(valid.size());
+        for (Line line : valid) {
+            line.item.setId(null);
+            if (names.contains(line.item.getName()))
+                result.fail(line.number, "Item name exists");
+            else
+                fresh.add(line);
+        }
+        if (fresh.isEmpty())
+            return;
+        try {
+            transactionTemplate.executeWithoutResult(status -> save(ownerId, fresh));
+            created(fresh, result);
+        } catch (DataIntegrityViolationException e) {
+            //A concurrent insert took a name or a line breaks another constraint, write the chunk one by one instead
+            log.warn("Item import chunk of {} failed, retrying one by one: {}", fresh.size(), e.getMessage());
+            writeEach(ownerId, fresh, result);
+        }
+    }
+
+    private void writeEach(long ownerId, List<Line> lines, ItemImportResult result) {
+        for (Line line : lines) {
+            line.item.setId(null);
+            try {
+                transactionTemplate.executeWithoutResult(status -> save(ownerId, List.of(line)));
+                created(List.of(line), result);
+            } catch (DataIntegrityViolationException e) {
+                result.fail(line.number, Constraints.isViolated(e, ItemRepository.OWNER_ITEM_NAME)
+                        ? "Item name exists" : Constraints.message(e));
+            }
+        }
+    }
+
+    //Rejects names repeated in the chunk and unknown requests
+    private List<Line> check(List<Line> chunk, ItemImportResult result) {
+        Set<String> names = new HashSet<>();
+        Set<Long> requestIds = chunk.stream()
+                .filter(line -> line.item.getRequest() != null)
+                .map(line -> line.item.getRequest().getId())
+                .collect(Collectors.toSet());
+        Set<Long> knownRequestIds = requestIds.isEmpty() ? Set.of() :
+                itemRequestRepository.findAllById(requestIds).stream()
+                        .map(ItemRequest::getId)
+                        .collect(Collectors.toSet());
+        List<Line> valid = new ArrayList<>(chunk.size());
+        for (Line line : chunk) {
+            if (line.item.getRequest() != null && !knownRequestIds.contains(line.item.getRequest().getId()))
+                result.fail(line.number, "Request not found");
+            else if (!names.add(line.item.getName()))
+                result.fail(line.number, "Item name exists");
+            else
+                valid.add(line);
+        }
+        return valid;
+    }
+
+    private void save(long ownerId, List<Line> lines) {
+        entityManager.unwrap(Session.class).setJdbcBatchSize(batchSize);
+        User owner = userRepository.getReferenceById(ownerId);
+        for (Line line : lines) {
+            line.item.setOwner(owner);
+            if (line.item.getRequest() != null)
+                line.item.setRequest(itemRequestRepository.getReferenceById(line.item.getRequest().getId()));
+            entityManager.persist(line.item);
+        }
+    }
+
+    //New ids cannot be in the items cache, only the search index learns about them
+    private void created(List<Line> lines, ItemImportResult result) {
+        lines.forEach(line -> itemSearchIndex.index(line.item));
+        result.setCreated(result.getCreated() + lines.size());
+    }
+
+    private static final class Line {
+        private final long number;
+        private final Item item;
+
+        private Line(long number, Item item) {
+            this.number = number;
+            this.item = item;
+        }
+    }
+}
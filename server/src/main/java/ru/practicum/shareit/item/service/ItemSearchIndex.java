@@ -0,0 +1,213 @@
+package ru.practicum.shareit.item.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ItemSearchIndex {
+    private static final int GRAM = 3;
+
+    private final ItemRepository itemRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    //Trigram -> sorted doc numbers
+    private final Map<String, Postings> postings = new HashMap<>();
+    //Item id -> doc number
+    private final Map<Long, Integer> docs = new HashMap<>();
+    private final List<Doc> docList = new ArrayList<>();
+    @Value("${shareit.search.in-memory:false}")
+    private boolean enabled;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        if (!enabled)
+            return;
+        List<Item> items = itemRepository.findAll(Sort.by("id"));
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            docs.clear();
+            docList.clear();
+            items.forEach(this::put);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Item search index rebuilt, {} items, {} grams", items.size(), postings.size());
+    }
+
+    public void index(Item item) {
+        if (!enabled)
+            return;
+        lock.writeLock().lock();
+        try {
+            put(item);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Item> search(String text, int from, int size) {
+        List<Item> found = find(text);
+        if (from >= found.size())
+            return new ArrayList<>();
+        return new ArrayList<>(found.subList(from, Math.min(found.size(), from + size)));
+    }
+
+    public List<Item> searchAfter(String text, long cursorId, int size) {
+        List<Item> found = find(text);
+        int from = 0;
+        while (from < found.size() && found.get(from).getId() <= cursorId)
+            from++;
+        return new ArrayList<>(found.subList(from, Math.min(found.size(), from + size)));
+    }
+
+    //Available items containing text in name or description, ordered by id
+    private List<Item> find(String text) {
+        String query = text.toLowerCase(Locale.ROOT);
+        List<Item> found = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            if (query.length() < GRAM) {
+                //Too short for trigrams, scan all docs
+                for (Doc doc : docList)
+                    if (doc.matches(query))
+                        found.add(doc.item);
+            } else {
+                Postings candidates = candidates(query);
+                for (int i = 0; candidates != null && i < candidates.size; i++) {
+                    Doc doc = docList.get(candidates.docs[i]);
+                    if (doc.matches(query))
+                        found.add(doc.item);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        found.sort(Comparator.comparing(Item::getId));
+        return found;
+    }
+
+    private Postings candidates(String query) {
+        List<Postings> lists = new ArrayList<>();
+        for (String gram : grams(query)) {
+            Postings list = postings.get(gram);
+            if (list == null)
+                return null;
+            lists.add(list);
+        }
+        //Intersect starting from the shortest list
+        lists.sort(Comparator.comparingInt(list -> list.size));
+        Postings result = lists.get(0);
+        for (int i = 1; i < lists.size() && result.size > 0; i++)
+            result = result.intersect(lists.get(i));
+        return result;
+    }
+
+    private void put(Item item) {
+        Integer docNumber = docs.get(item.getId());
+        if (docNumber != null) {
+            for (String gram : docList.get(docNumber).grams)
+                postings.get(gram).remove(docNumber);
+        } else {
+            docNumber = docList.size();
+            docList.add(null);
+            docs.put(item.getId(), docNumber);
+        }
+        Doc doc = new Doc(copyOf(item));
+        docList.set(docNumber, doc);
+        for (String gram : doc.grams)
+            postings.computeIfAbsent(gram, key -> new Postings()).add(docNumber);
+    }
+
+    private static Item copyOf(Item item) {
+        return new Item(item.getId(), item.getName(), item.getDescription(), item.getAvailable(),
+                item.getOwner(), item.getRequest());
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++)
+            grams.add(text.substring(i, i + GRAM));
+        return grams;
+    }
+
+    private static class Doc {
+        private final Item item;
+        private final String name;
+        private final String description;
+        private final Set<String> grams;
+
+        private Doc(Item item) {
+            this.item = item;
+            this.name = item.getName().toLowerCase(Locale.ROOT);
+            this.description = item.getDescription().toLowerCase(Locale.ROOT);
+            //Grams per field, so no gram spans name and description
+            this.grams = grams(name);
+            this.grams.addAll(grams(description));
+        }
+
+        private boolean matches(String query) {
+            return Boolean.TRUE.equals(item.getAvailable())
+                    && (name.contains(query) || description.contains(query));
+        }
+    }
+
+    private static class Postings {
+        private int[] docs = new int[4];
+        private int size;
+
+        private void add(int doc) {
+            int position = Arrays.binarySearch(docs, 0, size, doc);
+            if (position >= 0)
+                return;
+            position = -position - 1;
+            if (size == docs.length)
+                docs = Arrays.copyOf(docs, size * 2);
+            System.arraycopy(docs, position, docs, position + 1, size - position);
+            docs[position] = doc;
+            size++;
+        }
+
+        private void remove(int doc) {
+            int position = Arrays.binarySearch(docs, 0, size, doc);
+            if (position < 0)
+                return;
+            System.arraycopy(docs, position + 1, docs, position, size - position - 1);
+            size--;
+        }
+
+        private Postings intersect(Postings other) {
+            Postings result = new Postings();
+            result.docs = new int[Math.max(1, Math.min(size, other.size))];
+            int i = 0;
+            int j = 0;
+            while (i < size && j < other.size) {
+                if (docs[i] < other.docs[j]) {
+                    i++;
+                } else if (docs[i] > other.docs[j]) {
+                    j++;
+                } else {
+                    result.docs[result.size++] = docs[i];
+                    i++;
+                    j++;
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -1,9 +1,13 @@
 package ru.practicum.shareit.item.service;
 
+import ru.practicum.shareit.item.dto.ItemDtoWithBooking;
 import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.util.Cursor;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface ItemService {
     Item create(long userId, Item item);
@@ -12,13 +16,23 @@ public interface ItemService {
 
     Item getById(long id);
 
+    ItemDtoWithBooking getCard(long userId, long itemId);
+
     List<Item> getAllByUser(long userId, int from, int size);
 
+    List<Item> getAllByUser(long userId, Cursor cursor, int size);
+
     List<Item> findByRequestId(long requestId);
 
+    Map<Long, List<Item>> findByRequestIds(Collection<Long> requestIds);
+
     List<Item> searchByText(String text, int from, int size);
 
+    List<Item> searchByText(String text, Cursor cursor, int size);
+
     Comment addCommentToItem(Comment comment);
 
     List<Comment> findCommentsByItemId(long itemId);
+
+    Map<Long, List<Comment>> findCommentsByItemIds(Collection<Long> itemIds);
 }
@@ -2,37 +2,57 @@ package ru.practicum.shareit.item.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.repository.BookingRepository;
 import ru.practicum.shareit.exception.ValidateException;
+import ru.practicum.shareit.item.dto.ItemDtoWithBooking;
 import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.CommentRepository;
+import ru.practicum.shareit.item.repository.ItemCardRepository;
+import ru.practicum.shareit.item.repository.ItemPatchRepository;
 import ru.practicum.shareit.item.repository.ItemRepository;
 import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.request.repository.ItemRequestRepository;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.user.service.UserExistence;
+import ru.practicum.shareit.util.Cursor;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class ItemServiceImpl implements ItemService {
     private final ItemRepository itemRepository;
+    private final ItemCardRepository itemCardRepository;
+    private final ItemPatchRepository itemPatchRepository;
     private final UserRepository userRepository;
     private final CommentRepository commentRepository;
     private final BookingRepository bookingRepository;
     private final ItemRequestRepository itemRequestRepository;
+    private final ItemSearchIndex itemSearchIndex;
+    private final UserExistence userExistence;
+    @Value("${shareit.search.full-text:false}")
+    private boolean fullTextSearch;
 
     @Override
+    @CachePut(cacheNames = "items", key = "#result.id")
     public Item create(long userId, Item item) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new NoSuchElementException("User not found"));
@@ -43,26 +63,63 @@ public class ItemServiceImpl implements ItemService {
             item.setRequest(itemRequest);
         }
         log.info("Create Item {}", item);
-        return itemRepository.save(item);
+        //Flushed so constraint violations and jdbc reads in the same transaction see the row
+        Item savedItem = itemRepository.saveAndFlush(item);
+        itemSearchIndex.index(savedItem);
+        return savedItem;
     }
 
     @Override
+    @Transactional
+    //Evicted rather than put, the next read caches the item as the repository loads it
+    @CacheEvict(cacheNames = "items", key = "#itemId")
     public Item update(long userId, long itemId, Item item) {
-        Item updatedItem = getValidItem(userId, itemId, item);
-        log.info("Update Item {}", updatedItem);
-        return itemRepository.save(updatedItem);
+        Item patch = getValidPatch(item);
+        log.info("Update Item id={} with {}", itemId, patch);
+        if (patch.getName() == null && patch.getDescription() == null && patch.getAvailable() == null)
+            return getOwnedItem(userId, itemId);
+        //One conditional update, the item is only looked up when it did not match
+        Item savedItem = itemPatchRepository.update(itemId, userId, patch)
+                .orElseGet(() -> getOwnedItem(userId, itemId));
+        itemSearchIndex.index(savedItem);
+        return savedItem;
     }
 
     @Override
+    @Cacheable(cacheNames = "items", key = "#id")
     public Item getById(long id) {
         return itemRepository.findById(id).orElseThrow(() -> new NoSuchElementException("Item not found"));
     }
 
+    @Override
+    public ItemDtoWithBooking getCard(long userId, long itemId) {
+        return itemCardRepository.findCard(itemId, userId, LocalDateTime.now())
+                .orElseThrow(() -> new NoSuchElementException("Item not found"));
+    }
+
     @Override
     public List<Item> searchByText(String text, int from, int size) {
-        if (text != null && !text.isBlank())
-            return itemRepository.findByNameContainsIgnoreCaseOrDescriptionContainsIgnoreCaseAndAvailableTrue(text,
-                    text, PageRequest.of(from / size, size));
+        if (text != null && !text.isBlank()) {
+            if (itemSearchIndex.isEnabled())
+                return itemSearchIndex.search(text, from, size);
+            if (fullTextSearch)
+                return itemRepository.searchFullText(text, toLikePattern(text), PageRequest.of(from / size, size));
+            return itemRepository.search(toLikePattern(text), PageRequest.of(from / size, size));
+        }
+        //Return empty List
+        return new ArrayList<>();
+    }
+
+    @Override
+    public List<Item> searchByText(String text, Cursor cursor, int size) {
+        if (text != null && !text.isBlank()) {
+            if (itemSearchIndex.isEnabled())
+                return itemSearchIndex.searchAfter(text, cursor.getIdOrMin(), size);
+            if (fullTextSearch)
+                return itemRepository.searchFullTextPage(text, toLikePattern(text), cursor.getIdOrMin(),
+                        PageRequest.of(0, size));
+            return itemRepository.searchPage(toLikePattern(text), cursor.getIdOrMin(), PageRequest.of(0, size));
+        }
         //Return empty List
         return new ArrayList<>();
     }
@@ -91,36 +148,68 @@ public class ItemServiceImpl implements ItemService {
         return itemRepository.findByRequest_Id(requestId, Sort.by("id").descending());
     }
 
+    @Override
+    public Map<Long, List<Item>> findByRequestIds(Collection<Long> requestIds) {
+        if (requestIds.isEmpty())
+            return Map.of();
+        return itemRepository.findByRequest_IdIn(requestIds, Sort.by("id").descending()).stream()
+                .collect(Collectors.groupingBy(item -> item.getRequest().getId()));
+    }
+
     @Override
     public List<Comment> findCommentsByItemId(long itemId) {
         return commentRepository.findByItem_IdOrderByCreatedDesc(itemId);
     }
 
+    @Override
+    public Map<Long, List<Comment>> findCommentsByItemIds(Collection<Long> itemIds) {
+        if (itemIds.isEmpty())
+            return Map.of();
+        return commentRepository.findByItem_IdInOrderByCreatedDesc(itemIds).stream()
+                .collect(Collectors.groupingBy(comment -> comment.getItem().getId()));
+    }
+
     @Override
     public List<Item> getAllByUser(long userId, int from, int size) {
         return itemRepository.findByOwner_Id(userId, PageRequest.of(from / size, size, Sort.by("id")));
     }
 
-    private Item getValidItem(long userId, long itemId, Item item) {
-        Item updatedItem = itemRepository.findById(itemId).orElseThrow(
+    @Override
+    public List<Item> getAllByUser(long userId, Cursor cursor, int size) {
+        return itemRepository.findByOwner_IdAndIdGreaterThanOrderByIdAsc(userId, cursor.getIdOrMin(),
+                PageRequest.of(0, size));
+    }
+
+    private String toLikePattern(String text) {
+        String escaped = text.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+        return "%" + escaped + "%";
+    }
+
+    private Item getOwnedItem(long userId, long itemId) {
+        Item item = itemRepository.findById(itemId).orElseThrow(
                 () -> new NoSuchElementException("Item not found"));
         // Check user exists and by item access
-        if (userRepository.findById(userId).isPresent() &&
-                !updatedItem.getOwner().getId().equals(userId))
+        userExistence.check(userId);
+        if (!item.getOwner().getId().equals(userId))
             throw new NoSuchElementException("Access denied");
+        return item;
+    }
+
+    private Item getValidPatch(Item item) {
+        Item patch = new Item();
         //Check name
         String updatedName = item.getName();
         if (updatedName != null && !updatedName.isBlank())
-            updatedItem.setName(updatedName);
+            patch.setName(updatedName);
         //Check description
         String updatedDescription = item.getDescription();
         if (updatedDescription != null && !updatedDescription.isBlank()) {
-            updatedItem.setDescription(updatedDescription);
+            patch.setDescription(updatedDescription);
         }
         //Check available
-        if (item.getAvailable() != null) {
-            updatedItem.setAvailable(item.getAvailable());
-        }
-        return updatedItem;
+        patch.setAvailable(item.getAvailable());
+        return patch;
     }
 }
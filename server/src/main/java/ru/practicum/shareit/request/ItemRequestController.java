@@ -2,6 +2,7 @@ package ru.practicum.shareit.request;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.service.ItemService;
@@ -11,10 +12,13 @@ import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.request.service.ItemRequestService;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.service.UserService;
+import ru.practicum.shareit.util.Cursor;
 
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
+import static ru.practicum.shareit.util.Constant.NEXT_CURSOR_HEADER;
 import static ru.practicum.shareit.util.Constant.USER_ID_HEADER;
 
 @Slf4j
@@ -40,27 +44,27 @@ public class ItemRequestController {
     @GetMapping
     public List<ItemRequestDto> findByOwnerItemRequest(@RequestHeader(USER_ID_HEADER) long requesterId) {
         log.info("Get requests userId={}", requesterId);
-        return itemRequestService.findByRequesterId(requesterId).stream()
-                .map(itemRequest -> {
-                    List<Item> items = itemService.findByRequestId(itemRequest.getId());
-                    return ItemRequestMapper.toItemRequestDto(itemRequest, items);
-                })
-                .collect(Collectors.toList());
+        return toItemRequestDtoList(itemRequestService.findByRequesterId(requesterId));
     }
 
     @GetMapping("/all")
-    public List<ItemRequestDto> findAllItemRequest(
+    public ResponseEntity<List<ItemRequestDto>> findAllItemRequest(
             @RequestHeader(USER_ID_HEADER) long userId,
             @RequestParam(defaultValue = "0", required = false) int from,
-            @RequestParam(defaultValue = "10", required = false) int size
+            @RequestParam(defaultValue = "10", required = false) int size,
+            @RequestParam(required = false) String cursor
     ) {
-        log.info("Get all requests userId={}, from={}, size={}", userId, from, size);
-        return itemRequestService.findAll(userId, from, size).stream()
-                .map(itemRequest -> {
-                    List<Item> items = itemService.findByRequestId(itemRequest.getId());
-                    return ItemRequestMapper.toItemRequestDto(itemRequest, items);
-                })
-                .collect(Collectors.toList());
+        log.info("Get all requests userId={}, from={}, size={}, cursor={}", userId, from, size, cursor);
+        if (cursor == null)
+            return ResponseEntity.ok(toItemRequestDtoList(itemRequestService.findAll(userId, from, size)));
+        List<ItemRequest> itemRequests = itemRequestService.findAll(userId, Cursor.decode(cursor), size);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        // A full page means there may be more requests after the last one
+        if (itemRequests.size() == size) {
+            ItemRequest last = itemRequests.get(itemRequests.size() - 1);
+            response.header(NEXT_CURSOR_HEADER, Cursor.of(last.getCreated(), last.getId()).encode());
+        }
+        return response.body(toItemRequestDtoList(itemRequests));
     }
 
     @GetMapping("/{id}")
@@ -73,4 +77,15 @@ public class ItemRequestController {
         return ItemRequestMapper.toItemRequestDto(itemRequest, items);
     }
 
+    private List<ItemRequestDto> toItemRequestDtoList(List<ItemRequest> itemRequests) {
+        List<Long> requestIds = itemRequests.stream()
+                .map(ItemRequest::getId)
+                .collect(Collectors.toList());
+        // Load items for all requests at once
+        Map<Long, List<Item>> items = itemService.findByRequestIds(requestIds);
+        return itemRequests.stream()
+                .map(itemRequest -> ItemRequestMapper.toItemRequestDto(itemRequest,
+                        items.getOrDefault(itemRequest.getId(), List.of())))
+                .collect(Collectors.toList());
+    }
 }
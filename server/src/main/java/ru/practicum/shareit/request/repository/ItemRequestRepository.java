@@ -2,12 +2,22 @@ package ru.practicum.shareit.request.repository;
 
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import ru.practicum.shareit.request.model.ItemRequest;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 public interface ItemRequestRepository extends JpaRepository<ItemRequest, Long> {
     List<ItemRequest> findByRequester_IdOrderByCreatedAsc(Long id);
 
     List<ItemRequest> findByRequester_IdNot(Long id, Pageable pageable);
+
+    @Query("select r from ItemRequest r where r.requester.id <> :userId" +
+            " and (r.created < :cursorCreated or (r.created = :cursorCreated and r.id < :cursorId))" +
+            " order by r.created desc, r.id desc")
+    List<ItemRequest> findPageByRequesterNot(@Param("userId") Long userId,
+                                             @Param("cursorCreated") LocalDateTime cursorCreated,
+                                             @Param("cursorId") Long cursorId, Pageable pageable);
 }
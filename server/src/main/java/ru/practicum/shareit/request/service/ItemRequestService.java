@@ -1,6 +1,7 @@
 package ru.practicum.shareit.request.service;
 
 import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.util.Cursor;
 
 import java.util.List;
 
@@ -12,4 +13,6 @@ public interface ItemRequestService {
     List<ItemRequest> findByRequesterId(long requesterId);
 
     List<ItemRequest> findAll(long userId, int from, int size);
+
+    List<ItemRequest> findAll(long userId, Cursor cursor, int size);
 }
@@ -2,13 +2,16 @@ package ru.practicum.shareit.request.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import ru.practicum.shareit.exception.ValidateException;
 import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.request.repository.ItemRequestRepository;
-import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.user.service.UserExistence;
+import ru.practicum.shareit.util.Cursor;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -19,9 +22,10 @@ import java.util.NoSuchElementException;
 @Slf4j
 public class ItemRequestServiceImpl implements ItemRequestService {
     private final ItemRequestRepository itemRequestRepository;
-    private final UserRepository userRepository;
+    private final UserExistence userExistence;
 
     @Override
+    @CachePut(cacheNames = "requests", key = "#result.id")
     public ItemRequest create(ItemRequest itemRequest) {
         if (itemRequest.getDescription() == null || itemRequest.getDescription().isBlank()) {
             throw new ValidateException("Description is empty");
@@ -33,7 +37,7 @@ public class ItemRequestServiceImpl implements ItemRequestService {
     @Override
     public List<ItemRequest> findByRequesterId(long requesterId) {
         //Check user
-        userRepository.findById(requesterId).orElseThrow(() -> new NoSuchElementException("User not found"));
+        userExistence.check(requesterId);
         return itemRequestRepository.findByRequester_IdOrderByCreatedAsc(requesterId);
     }
 
@@ -46,6 +50,13 @@ public class ItemRequestServiceImpl implements ItemRequestService {
     }
 
     @Override
+    public List<ItemRequest> findAll(long userId, Cursor cursor, int size) {
+        return itemRequestRepository.findPageByRequesterNot(userId, cursor.getKeyOrMax(), cursor.getIdOrMax(),
+                PageRequest.of(0, size));
+    }
+
+    @Override
+    @Cacheable(cacheNames = "requests", key = "#id")
     public ItemRequest findById(long id) {
         return itemRequestRepository.findById(id).orElseThrow(() -> new NoSuchElementException("Request not found"));
     }
@@ -0,0 +1,48 @@
+package ru.practicum.shareit.user.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.shareit.user.model.User;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+@RequiredArgsConstructor
+public class UserPatchRepository {
+    private static final String COLUMNS = "id, name, email";
+    private static final RowMapper<User> USER = (rs, rowNum) ->
+            new User(rs.getLong("id"), rs.getString("name"), rs.getString("email"));
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    @Value("${shareit.updates.returning:false}")
+    private boolean returning;
+
+    //Sets only the non-null fields of the patch, empty when the user is missing
+    public Optional<User> update(long userId, User patch) {
+        List<String> columns = new ArrayList<>();
+        MapSqlParameterSource params = new MapSqlParameterSource("userId", userId);
+        if (patch.getName() != null) {
+            columns.add("name = :name");
+            params.addValue("name", patch.getName());
+        }
+        if (patch.getEmail() != null) {
+            columns.add("email = :email");
+            params.addValue("email", patch.getEmail());
+        }
+        if (columns.isEmpty())
+            throw new IllegalArgumentException("Nothing to update");
+        String sql = "UPDATE users SET " + String.join(", ", columns) + " WHERE id = :userId";
+        if (returning)
+            return jdbcTemplate.query(sql + " RETURNING " + COLUMNS, params, USER).stream().findFirst();
+        if (jdbcTemplate.update(sql, params) == 0)
+            return Optional.empty();
+        return jdbcTemplate.query("SELECT " + COLUMNS + " FROM users WHERE id = :userId", params, USER)
+                .stream().findFirst();
+    }
+}
@@ -1,10 +1,19 @@
 package ru.practicum.shareit.user.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import ru.practicum.shareit.user.model.User;
 
-import java.util.Optional;
+import java.util.List;
 
 public interface UserRepository extends JpaRepository<User, Long> {
-    Optional<User> findByEmailContainsIgnoreCase(String email);
+    @Query("select count(u) > 0 from User u where lower(u.email) = :email and u.id <> :userId")
+    boolean existsByNormalizedEmail(@Param("email") String normalizedEmail, @Param("userId") long userId);
+
+    @Query("select lower(u.email) from User u")
+    List<String> findAllNormalizedEmails();
+
+    @Query("select u.id from User u")
+    List<Long> findAllIds();
 }
@@ -0,0 +1,90 @@
+package ru.practicum.shareit.user.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+@Slf4j
+@Component
+public class EmailFilter {
+    private final UserRepository userRepository;
+    private final AtomicLongArray bits;
+    private final int bitCount;
+    private final int hashCount;
+    //Until loaded every email is reported as possibly taken
+    private volatile boolean loaded;
+
+    public EmailFilter(UserRepository userRepository,
+                       @Value("${shareit.users.email-filter.expected:100000}") int expected,
+                       @Value("${shareit.users.email-filter.fpp:0.01}") double fpp) {
+        this.userRepository = userRepository;
+        //Standard Bloom filter sizing for n expected entries and false positive rate p
+        long size = (long) Math.ceil(-expected * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+        this.bitCount = (int) Math.max(64, Math.min(size, Integer.MAX_VALUE - 63));
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expected * Math.log(2)));
+        this.bits = new AtomicLongArray((bitCount + 63) / 64);
+    }
+
+    public static String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        List<String> emails = userRepository.findAllNormalizedEmails();
+        emails.forEach(this::put);
+        loaded = true;
+        log.info("Loaded {} emails into filter, {} bits, {} hashes", emails.size(), bitCount, hashCount);
+    }
+
+    public boolean mightContain(String normalizedEmail) {
+        if (!loaded)
+            return true;
+        long hash = hash(normalizedEmail);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % bitCount;
+            if ((bits.get(bit >>> 6) & (1L << bit)) == 0)
+                return false;
+        }
+        return true;
+    }
+
+    public void put(String normalizedEmail) {
+        long hash = hash(normalizedEmail);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= hashCount; i++) {
+            int bit = ((h1 + i * h2) & Integer.MAX_VALUE) % bitCount;
+            long mask = 1L << bit;
+            long word;
+            do {
+                word = bits.get(bit >>> 6);
+            } while ((word & mask) == 0 && !bits.compareAndSet(bit >>> 6, word, word | mask));
+        }
+    }
+
+    //64-bit FNV-1a with a murmur finalizer, split into two 32-bit hashes
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
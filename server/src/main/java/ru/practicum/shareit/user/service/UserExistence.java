@@ -0,0 +1,76 @@
+package ru.practicum.shareit.user.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class UserExistence {
+    private final UserRepository userRepository;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    //Bit per known user id
+    private final BitSet knownIds = new BitSet();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        List<Long> ids = userRepository.findAllIds();
+        ids.forEach(this::add);
+        log.info("Loaded {} user ids", ids.size());
+    }
+
+    public boolean exists(long userId) {
+        if (userId <= 0)
+            return false;
+        if (userId <= Integer.MAX_VALUE) {
+            lock.readLock().lock();
+            try {
+                if (knownIds.get((int) userId))
+                    return true;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+        //Not known here, e.g. created before startup finished
+        boolean exists = userRepository.existsById(userId);
+        if (exists)
+            add(userId);
+        return exists;
+    }
+
+    public void check(long userId) {
+        if (!exists(userId))
+            throw new NoSuchElementException("User not found");
+    }
+
+    public void add(long userId) {
+        if (userId <= 0 || userId > Integer.MAX_VALUE)
+            return;
+        lock.writeLock().lock();
+        try {
+            knownIds.set((int) userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long userId) {
+        if (userId <= 0 || userId > Integer.MAX_VALUE)
+            return;
+        lock.writeLock().lock();
+        try {
+            knownIds.clear((int) userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -2,10 +2,19 @@ package ru.practicum.shareit.user.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import ru.practicum.shareit.exception.ExistsElementException;
+import ru.practicum.shareit.exception.ValidateException;
 import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.repository.UserPatchRepository;
 import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.util.Constraints;
 
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -14,7 +23,12 @@ import java.util.NoSuchElementException;
 @RequiredArgsConstructor
 @Service
 public class UserServiceImpl implements UserService {
+    private static final String EMPTY_PATCH = "T(ru.practicum.shareit.user.service.UserServiceImpl).isEmptyPatch(#user)";
+
     private final UserRepository repository;
+    private final UserPatchRepository patchRepository;
+    private final UserExistence userExistence;
+    private final EmailFilter emailFilter;
 
     @Override
     public List<User> getAll() {
@@ -22,48 +36,94 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
+    @Cacheable(cacheNames = "users", key = "#id")
     public User getById(long id) {
         return repository.findById(id).orElseThrow(() -> new NoSuchElementException("User not found"));
     }
 
     @Override
+    @Transactional
+    @CachePut(cacheNames = "users", key = "#result.id")
     public User create(User user) {
+        if (user.getName() == null || user.getName().isBlank())
+            throw new ValidateException("Name is empty");
+        if (user.getEmail() == null || user.getEmail().isBlank())
+            throw new ValidateException("Email is empty");
         log.info("Add user {}", user);
-        return repository.save(user);
+        User savedUser;
+        //Duplicates are left to the unique index, a rejected insert still takes its id
+        try {
+            savedUser = repository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            if (Constraints.isUniqueViolation(e))
+                throw new ExistsElementException("Email exists");
+            throw e;
+        }
+        //Case variants are rejected by the index on lower(email) on PostgreSQL only, checked again after the
+        //insert so they are rolled back everywhere
+        checkEmail(savedUser.getEmail(), savedUser.getId());
+        userExistence.add(savedUser.getId());
+        emailFilter.put(EmailFilter.normalize(savedUser.getEmail()));
+        return savedUser;
     }
 
     @Override
+    @CacheEvict(cacheNames = "users", key = "#id")
     public void remove(long id) {
         repository.findById(id);
         repository.deleteById(id);
+        userExistence.remove(id);
     }
 
     @Override
+    @Transactional
+    @Caching(cacheable = @Cacheable(cacheNames = "users", key = "#userId", condition = EMPTY_PATCH),
+            put = @CachePut(cacheNames = "users", key = "#userId", condition = "!" + EMPTY_PATCH))
     public User update(long userId, User user) {
-        User updatedUser = getValidUser(userId, user);
-        updatedUser.setId(userId);
-        log.info("Updated user {}", updatedUser);
+        //An empty patch changes nothing and is answered like a read, from the cache when the user is there
+        if (isEmptyPatch(user))
+            return getById(userId);
+        User patch = getValidPatch(userId, user);
+        log.info("Updated user id={} with {}", userId, patch);
+        User savedUser;
+        //A concurrent update may still take the email between the check and the update
+        try {
+            savedUser = patchRepository.update(userId, patch)
+                    .orElseThrow(() -> new NoSuchElementException("User not found"));
+        } catch (DataIntegrityViolationException e) {
+            if (Constraints.isUniqueViolation(e))
+                throw new ExistsElementException("Email exists");
+            throw e;
+        }
+        emailFilter.put(EmailFilter.normalize(savedUser.getEmail()));
+        return savedUser;
+    }
 
-        return repository.save(updatedUser);
+    public static boolean isEmptyPatch(User user) {
+        return (user.getName() == null || user.getName().isBlank())
+                && (user.getEmail() == null || user.getEmail().isBlank());
     }
 
-    private User getValidUser(long userId, User user) {
-        User updatedUser = repository.findById(userId).orElseThrow(
-                () -> new NoSuchElementException("User not found"));
+    private User getValidPatch(long userId, User user) {
+        User patch = new User();
 
         String updatedName = user.getName();
         if (updatedName != null && !updatedName.isBlank())
-            updatedUser.setName(updatedName);
+            patch.setName(updatedName);
 
         String updatedEmail = user.getEmail();
         if (updatedEmail != null && !updatedEmail.isBlank()) {
-
-            repository.findByEmailContainsIgnoreCase(updatedEmail).ifPresent(u -> {
-                throw new ExistsElementException("Email exists");
-            });
-            updatedUser.setEmail(updatedEmail);
+            checkEmail(updatedEmail, userId);
+            patch.setEmail(updatedEmail);
         }
-        return updatedUser;
+        return patch;
+    }
+
+    private void checkEmail(String email, long userId) {
+        String normalizedEmail = EmailFilter.normalize(email);
+        //Filter says "definitely new" for most emails, so the query is skipped
+        if (emailFilter.mightContain(normalizedEmail) && repository.existsByNormalizedEmail(normalizedEmail, userId))
+            throw new ExistsElementException("Email exists");
     }
 
 }
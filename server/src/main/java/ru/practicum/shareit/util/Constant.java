@@ -3,4 +3,7 @@ package ru.practicum.shareit.util;
 
 public class Constant {
     public static final String USER_ID_HEADER = "X-Sharer-User-Id";
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    //Bookings decided in one request, all of them are locked in one transaction
+    public static final int MAX_BULK_DECISIONS = 1000;
 }
@@ -0,0 +1,57 @@
+package ru.practicum.shareit.util;
+
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Predicate;
+
+//Tells which constraint a rejected write violated. Both databases name it in their error messages, Hibernate
+//extracts the name only for some kinds of constraints
+public class Constraints {
+    public static final String UNIQUE_VIOLATION = "23505";
+
+    public static boolean isViolated(DataIntegrityViolationException e, String constraintName) {
+        String name = constraintName.toLowerCase(Locale.ROOT);
+        return anyCause(e, cause -> cause.getMessage() != null
+                && cause.getMessage().toLowerCase(Locale.ROOT).contains(name));
+    }
+
+    public static boolean isUniqueViolation(DataIntegrityViolationException e) {
+        return anyCause(e, cause -> cause instanceof SQLException
+                && UNIQUE_VIOLATION.equals(((SQLException) cause).getSQLState()));
+    }
+
+    //The database's own message, a failed batch keeps it in its next exception
+    public static String message(DataIntegrityViolationException e) {
+        Throwable cause = NestedExceptionUtils.getMostSpecificCause(e);
+        while (cause instanceof SQLException && ((SQLException) cause).getNextException() != null)
+            cause = ((SQLException) cause).getNextException();
+        return cause.getMessage();
+    }
+
+    //The exception, its causes and the next exceptions of a failed batch
+    private static boolean anyCause(Throwable e, Predicate<Throwable> predicate) {
+        Set<Throwable> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Throwable> pending = new ArrayDeque<>();
+        pending.push(e);
+        while (!pending.isEmpty()) {
+            Throwable cause = pending.pop();
+            if (!seen.add(cause))
+                continue;
+            if (predicate.test(cause))
+                return true;
+            if (cause.getCause() != null)
+                pending.push(cause.getCause());
+            if (cause instanceof SQLException && ((SQLException) cause).getNextException() != null)
+                pending.push(((SQLException) cause).getNextException());
+        }
+        return false;
+    }
+}
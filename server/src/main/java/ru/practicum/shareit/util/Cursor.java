@@ -0,0 +1,68 @@
+package ru.practicum.shareit.util;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import ru.practicum.shareit.exception.ValidateException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+@Getter
+@ToString
+@EqualsAndHashCode
+public class Cursor {
+    private static final LocalDateTime MAX_KEY = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+    private static final String SEPARATOR = ",";
+
+    private final LocalDateTime key;
+    private final Long id;
+
+    private Cursor(LocalDateTime key, Long id) {
+        this.key = key;
+        this.id = id;
+    }
+
+    public static Cursor first() {
+        return new Cursor(null, null);
+    }
+
+    public static Cursor of(LocalDateTime key, long id) {
+        return new Cursor(key, id);
+    }
+
+    public static Cursor decode(String token) {
+        if (token == null || token.isBlank())
+            return first();
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = value.indexOf(SEPARATOR);
+            if (separator < 0)
+                throw new ValidateException("Invalid cursor");
+            long id = Long.parseLong(value.substring(0, separator));
+            String key = value.substring(separator + 1);
+            return new Cursor(key.isEmpty() ? null : LocalDateTime.parse(key), id);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new ValidateException("Invalid cursor");
+        }
+    }
+
+    public String encode() {
+        String value = id + SEPARATOR + (key == null ? "" : key.toString());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public LocalDateTime getKeyOrMax() {
+        return key == null ? MAX_KEY : key;
+    }
+
+    public long getIdOrMax() {
+        return id == null ? Long.MAX_VALUE : id;
+    }
+
+    public long getIdOrMin() {
+        return id == null ? 0 : id;
+    }
+}
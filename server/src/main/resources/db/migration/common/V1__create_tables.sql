@@ -1,4 +1,3 @@
---DROP TABLE IF EXISTS users, items, bookings, item_request, comments;
 
 CREATE TABLE IF NOT EXISTS users
 (
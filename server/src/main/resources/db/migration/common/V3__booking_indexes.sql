@@ -0,0 +1,18 @@
+-- Booker lists: ALL/CURRENT/FUTURE and keyset pages sort by (start, id) desc
+CREATE INDEX IF NOT EXISTS ix_bookings_booker_start ON bookings (booker_id, start_date_time DESC, id DESC);
+-- Booker lists: PAST and comment eligibility filter on end
+CREATE INDEX IF NOT EXISTS ix_bookings_booker_end ON bookings (booker_id, end_date_time);
+-- Booker lists: WAITING/REJECTED
+CREATE INDEX IF NOT EXISTS ix_bookings_booker_status ON bookings (booker_id, status, start_date_time DESC, id DESC);
+-- Booker lists ordered by id in offset mode
+CREATE INDEX IF NOT EXISTS ix_bookings_booker_id ON bookings (booker_id, id);
+
+-- Last/next booking per item
+CREATE INDEX IF NOT EXISTS ix_bookings_item_end ON bookings (item_id, end_date_time);
+CREATE INDEX IF NOT EXISTS ix_bookings_item_start ON bookings (item_id, start_date_time);
+
+-- Owner lists join bookings through items.owner_id
+CREATE INDEX IF NOT EXISTS ix_items_owner ON items (owner_id, id);
+CREATE INDEX IF NOT EXISTS ix_items_request ON items (request_id);
+CREATE INDEX IF NOT EXISTS ix_item_requests_requester ON item_requests (requester_id, created);
+CREATE INDEX IF NOT EXISTS ix_comments_item ON comments (item_id, created);
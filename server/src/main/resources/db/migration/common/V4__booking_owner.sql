@@ -0,0 +1,16 @@
+-- Owner of the booked item, copied so owner lists read bookings alone
+ALTER TABLE bookings ADD COLUMN IF NOT EXISTS owner_id BIGINT;
+
+UPDATE bookings b
+SET owner_id = (SELECT i.owner_id FROM items i WHERE i.id = b.item_id)
+WHERE b.owner_id IS NULL;
+
+-- Ownership changes on items cascade to their bookings
+ALTER TABLE items ADD CONSTRAINT uq_items_id_owner UNIQUE (id, owner_id);
+ALTER TABLE bookings ADD CONSTRAINT fk_bookings_item_owner
+    FOREIGN KEY (item_id, owner_id) REFERENCES items (id, owner_id) ON UPDATE CASCADE;
+
+CREATE INDEX IF NOT EXISTS ix_bookings_owner_start ON bookings (owner_id, start_date_time DESC, id DESC);
+CREATE INDEX IF NOT EXISTS ix_bookings_owner_end ON bookings (owner_id, end_date_time);
+CREATE INDEX IF NOT EXISTS ix_bookings_owner_status ON bookings (owner_id, status, start_date_time DESC, id DESC);
+CREATE INDEX IF NOT EXISTS ix_bookings_owner_id ON bookings (owner_id, id);
@@ -0,0 +1,11 @@
+-- Last/next booking of every item, valid until booking_pointers_until (NULL while no booking lies ahead)
+ALTER TABLE items ADD COLUMN IF NOT EXISTS last_booking_id BIGINT;
+ALTER TABLE items ADD COLUMN IF NOT EXISTS next_booking_id BIGINT;
+ALTER TABLE items ADD COLUMN IF NOT EXISTS booking_pointers_until TIMESTAMP WITHOUT TIME ZONE;
+
+-- Expire pointers of booked items so the first sweep computes them with the application clock
+UPDATE items
+SET booking_pointers_until = TIMESTAMP '1970-01-01 00:00:00'
+WHERE id IN (SELECT b.item_id FROM bookings b);
+
+CREATE INDEX IF NOT EXISTS ix_items_booking_pointers_until ON items (booking_pointers_until);
@@ -0,0 +1,36 @@
+CREATE EXTENSION IF NOT EXISTS btree_gist;
+
+-- Approved bookings are never rewritten, overlapping ones have to be resolved by hand first
+DO
+$$
+    DECLARE
+        conflicts TEXT;
+    BEGIN
+        SELECT string_agg(a.id || ' and ' || b.id, ', ' ORDER BY a.id, b.id)
+        INTO conflicts
+        FROM bookings a
+                 JOIN bookings b ON b.item_id = a.item_id AND a.id < b.id
+        WHERE a.status = 'APPROVED'
+          AND b.status = 'APPROVED'
+          AND tsrange(a.start_date_time, a.end_date_time) && tsrange(b.start_date_time, b.end_date_time);
+        IF conflicts IS NOT NULL THEN
+            RAISE EXCEPTION 'Approved bookings overlap, resolve them before the exclusion constraint: %', conflicts;
+        END IF;
+    END
+$$;
+
+-- Reject waiting bookings overlapping an approved or an earlier waiting booking of the same item, so the
+-- constraint can be built
+UPDATE bookings b
+SET status = 'REJECTED'
+WHERE b.status = 'WAITING'
+  AND EXISTS(SELECT 1
+             FROM bookings o
+             WHERE o.item_id = b.item_id
+               AND (o.status = 'APPROVED' OR (o.status = 'WAITING' AND o.id < b.id))
+               AND tsrange(o.start_date_time, o.end_date_time) && tsrange(b.start_date_time, b.end_date_time));
+
+-- At most one waiting or approved booking per item at any moment, periods are half-open [start, end)
+ALTER TABLE bookings ADD CONSTRAINT ex_bookings_item_period
+    EXCLUDE USING gist (item_id WITH =, tsrange(start_date_time, end_date_time) WITH &&)
+    WHERE (status IN ('WAITING', 'APPROVED'));
@@ -0,0 +1,18 @@
+-- Continue after the existing ids, the first block handed out is (max(id), max(id) + 50]
+SELECT setval('users_seq', coalesce(max(id), 0) + 50, false) FROM users;
+SELECT setval('item_requests_seq', coalesce(max(id), 0) + 50, false) FROM item_requests;
+SELECT setval('items_seq', coalesce(max(id), 0) + 50, false) FROM items;
+SELECT setval('bookings_seq', coalesce(max(id), 0) + 50, false) FROM bookings;
+SELECT setval('comments_seq', coalesce(max(id), 0) + 50, false) FROM comments;
+
+-- Plain inserts take a whole block from the same sequence, so they never collide with the application
+ALTER TABLE users ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE users ALTER COLUMN id SET DEFAULT nextval('users_seq');
+ALTER TABLE item_requests ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE item_requests ALTER COLUMN id SET DEFAULT nextval('item_requests_seq');
+ALTER TABLE items ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE items ALTER COLUMN id SET DEFAULT nextval('items_seq');
+ALTER TABLE bookings ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE bookings ALTER COLUMN id SET DEFAULT nextval('bookings_seq');
+ALTER TABLE comments ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE comments ALTER COLUMN id SET DEFAULT nextval('comments_seq');
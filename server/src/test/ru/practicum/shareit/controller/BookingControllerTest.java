@@ -5,44 +5,56 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import ru.practicum.shareit.booking.BookingController;
 import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingExportFormat;
 import ru.practicum.shareit.booking.dto.BookingMapper;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.service.BookingExporter;
+import ru.practicum.shareit.booking.service.BookingSequencer;
 import ru.practicum.shareit.booking.service.BookingService;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.service.ItemService;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.service.UserService;
 
+import javax.servlet.http.HttpServletResponse;
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(controllers = BookingController.class)
 class BookingControllerTest {
+    private final LocalDateTime start = LocalDateTime.now().plusDays(1).withNano(0);
+    private final LocalDateTime end = LocalDateTime.now().plusDays(2).withNano(0);
     private final User ownerUser = new User(1L, "Name", "test@test.ru");
     private final User someUser = new User(2L, "Name 2", "test2@test.ru");
     private final Item item = new Item(1L, "Клей", "Секундный клей момент", true, ownerUser,
             null);
-    private final Booking booking = new Booking(1L, start, end, item, someUser, BookingStatus.WAITING);
+    private final Booking booking = new Booking(1L, start, end, item, someUser, BookingStatus.WAITING, null);
     private final BookingDto bookingDto = BookingMapper.toBookingDto(booking);
-    private final Booking bookingApproved = new Booking(2L, start, end, item, someUser, BookingStatus.APPROVED);
+    private final Booking bookingApproved = new Booking(2L, start, end, item, someUser, BookingStatus.APPROVED, null);
     private final BookingDto bookingApprovedDto = BookingMapper.toBookingDto(bookingApproved);
-    private final Booking bookingRejected = new Booking(3L, start, end, item, someUser, BookingStatus.REJECTED);
+    private final Booking bookingRejected = new Booking(3L, start, end, item, someUser, BookingStatus.REJECTED, null);
     private final BookingDto bookingRejectedDto = BookingMapper.toBookingDto(bookingRejected);
-    private final LocalDateTime start = LocalDateTime.now().plusDays(1).withNano(0);
-    private final LocalDateTime end = LocalDateTime.now().plusDays(2).withNano(0);
     @Autowired
     private MockMvc mockMvc;
     @Autowired
@@ -53,6 +65,10 @@ class BookingControllerTest {
     private UserService userService;
     @MockBean
     private ItemService itemService;
+    @MockBean
+    private BookingSequencer bookingSequencer;
+    @MockBean
+    private BookingExporter bookingExporter;
 
     @Test
     void create() throws Exception {
@@ -74,6 +90,26 @@ class BookingControllerTest {
                 .andExpect(jsonPath("$.status", is(bookingDto.getStatus().toString())));
     }
 
+    @Test
+    void createThroughSequencer() throws Exception {
+        when(bookingSequencer.isEnabled())
+                .thenReturn(true);
+        when(bookingSequencer.submit(anyLong(), any()))
+                .thenReturn(booking);
+        mockMvc.perform(post("/bookings")
+                        .header("X-Sharer-User-Id", 2)
+                        .content(mapper.writeValueAsString(bookingDto))
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id", is(bookingDto.getId()), Long.class))
+                .andExpect(jsonPath("$.item.id", is(bookingDto.getItem().getId()), Long.class))
+                .andExpect(jsonPath("$.status", is(bookingDto.getStatus().toString())));
+        verify(bookingSequencer).submit(eq(2L), any());
+        verify(bookingService, never()).create(anyLong(), any());
+    }
+
     @Test
     void approveBooking() throws Exception {
         when(bookingService.approveBooking(anyLong(), anyLong(), anyBoolean()))
@@ -179,4 +215,54 @@ class BookingControllerTest {
                 .andExpect(jsonPath("$[2].status", is(bookingRejectedDto.getStatus().toString())));
     }
 
+    @Test
+    void exportByUserId() throws Exception {
+        doAnswer(invocation -> {
+            writeExport(invocation.getArgument(2), invocation.getArgument(3));
+            return null;
+        }).when(bookingExporter).export(anyLong(), anyBoolean(), any(), any());
+        mockMvc.perform(get("/bookings/export?format=CSV")
+                        .header("X-Sharer-User-Id", someUser.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"bookings.csv\""))
+                .andExpect(content().string("id\n1\n"));
+        verify(bookingExporter).export(eq(someUser.getId()), eq(false), eq(BookingExportFormat.CSV), any());
+    }
+
+    @Test
+    void exportByOwnerId() throws Exception {
+        doAnswer(invocation -> {
+            writeExport(invocation.getArgument(2), invocation.getArgument(3));
+            return null;
+        }).when(bookingExporter).export(anyLong(), anyBoolean(), any(), any());
+        mockMvc.perform(get("/bookings/owner/export")
+                        .header("X-Sharer-User-Id", ownerUser.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"bookings.ndjson\""))
+                .andExpect(content().string("id\n1\n"));
+        verify(bookingExporter).export(eq(ownerUser.getId()), eq(true), eq(BookingExportFormat.NDJSON), any());
+    }
+
+    @Test
+    void exportOfUnknownUser() throws Exception {
+        doThrow(new NoSuchElementException("User not found"))
+                .when(bookingExporter).export(anyLong(), anyBoolean(), any(), any());
+        mockMvc.perform(get("/bookings/export")
+                        .header("X-Sharer-User-Id", 999))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error", is("User not found")));
+        mockMvc.perform(get("/bookings/owner/export")
+                        .header("X-Sharer-User-Id", 999))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.error", is("User not found")));
+    }
+
+    //What the exporter writes is covered by its own test, here it only has to reach the client
+    private static void writeExport(BookingExportFormat format, HttpServletResponse response) throws Exception {
+        response.setContentType(format.getContentType());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"bookings." + format.getExtension() + "\"");
+        response.getWriter().write("id\n1\n");
+    }
 }
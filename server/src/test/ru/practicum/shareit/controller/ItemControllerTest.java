@@ -12,13 +12,16 @@ import ru.practicum.shareit.item.ItemController;
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.CommentMapper;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemImportResult;
 import ru.practicum.shareit.item.dto.ItemMapper;
 import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.service.ItemImporter;
 import ru.practicum.shareit.item.service.ItemService;
 import ru.practicum.shareit.request.service.ItemRequestService;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.service.UserService;
+import ru.practicum.shareit.util.Cursor;
 
 import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
@@ -28,6 +31,7 @@ import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -45,6 +49,8 @@ class ItemControllerTest {
     BookingService bookingService;
     @MockBean
     ItemRequestService itemRequestService;
+    @MockBean
+    ItemImporter itemImporter;
     @Autowired
     private MockMvc mockMvc;
     @Autowired
@@ -68,6 +74,27 @@ class ItemControllerTest {
                 .andExpect(jsonPath("$.available", is(itemDto.getAvailable())));
     }
 
+    @Test
+    void importItems() throws Exception {
+        ItemImportResult result = new ItemImportResult();
+        result.setReceived(2);
+        result.setCreated(1);
+        result.fail(2, "Malformed item json");
+        when(itemImporter.importItems(anyLong(), any()))
+                .thenReturn(result);
+        mockMvc.perform(post("/items/bulk")
+                        .header("X-Sharer-User-Id", user.getId())
+                        .content(mapper.writeValueAsString(ItemMapper.toItemDto(item)) + "\nnot json\n")
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.received", is(2)))
+                .andExpect(jsonPath("$.created", is(1)))
+                .andExpect(jsonPath("$.failures[0].line", is(2)))
+                .andExpect(jsonPath("$.failures[0].error", is("Malformed item json")));
+    }
+
     @Test
     void update() throws Exception {
         ItemDto itemDto = ItemMapper.toItemDto(item);
@@ -157,6 +184,19 @@ class ItemControllerTest {
                 .andExpect(jsonPath("$[2].available", is(itemDtoList.get(2).getAvailable())));
     }
 
+    @Test
+    void searchByTextWithCursor() throws Exception {
+        when(itemService.searchByText(anyString(), any(Cursor.class), anyInt()))
+                .thenReturn(List.of(item, item2));
+        mockMvc.perform(get("/items/search?text=клей&size=2&cursor=")
+                        .header("X-Sharer-User-Id", user.getId())
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string("X-Next-Cursor", Cursor.of(null, item2.getId()).encode()))
+                .andExpect(jsonPath("$[1].id", is(item2.getId()), Long.class));
+    }
+
     @Test
     void addCommentToItem() throws Exception {
         LocalDateTime created = LocalDateTime.now().withNano(0);
@@ -0,0 +1,90 @@
+package ru.practicum.shareit.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingExportFormat;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.service.BookingExporter;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.service.UserService;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class BookingExporterIntegrationTest {
+    private final BookingExporter bookingExporter;
+    private final BookingService bookingService;
+    private final ItemService itemService;
+    private final UserService userService;
+    private final ObjectMapper objectMapper;
+
+    @Test
+    void exportWritesWholeHistoryAsCsvAndNdjson() throws Exception {
+        User owner = userService.create(new User(null, "Owner", "owner@export.ru"));
+        User booker = userService.create(new User(null, "Booker", "booker@export.ru"));
+        Item item = itemService.create(owner.getId(), new Item(null, "Клей \"Момент\", 3 г",
+                "Секундный клей", true, owner, null));
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        Booking later = bookingService.create(booker.getId(), new Booking(null, now.plusDays(3),
+                now.plusDays(4), item, booker, BookingStatus.WAITING, null));
+        Booking earlier = bookingService.create(booker.getId(), new Booking(null, now.plusDays(1),
+                now.plusDays(2), item, booker, BookingStatus.WAITING, null));
+
+        MockHttpServletResponse csv = new MockHttpServletResponse();
+        bookingExporter.export(booker.getId(), false, BookingExportFormat.CSV, csv);
+
+        Assertions.assertEquals("text/csv;charset=UTF-8", csv.getContentType());
+        Assertions.assertEquals("attachment; filename=\"bookings.csv\"", csv.getHeader("Content-Disposition"));
+        String name = "\"Клей \"\"Момент\"\", 3 г\"";
+        Assertions.assertEquals(List.of(
+                "id,start,end,item_id,item_name,booker_id,status",
+                String.join(",", earlier.getId().toString(), format(earlier.getStart()), format(earlier.getEnd()),
+                        item.getId().toString(), name, booker.getId().toString(), "WAITING"),
+                String.join(",", later.getId().toString(), format(later.getStart()), format(later.getEnd()),
+                        item.getId().toString(), name, booker.getId().toString(), "WAITING")),
+                csv.getContentAsString(StandardCharsets.UTF_8).lines().collect(Collectors.toList()));
+
+        MockHttpServletResponse ndjson = new MockHttpServletResponse();
+        bookingExporter.export(owner.getId(), true, BookingExportFormat.NDJSON, ndjson);
+
+        Assertions.assertEquals("application/x-ndjson;charset=UTF-8", ndjson.getContentType());
+        List<String> lines = ndjson.getContentAsString(StandardCharsets.UTF_8).lines()
+                .collect(Collectors.toList());
+        Assertions.assertEquals(2, lines.size());
+        BookingDto first = objectMapper.readValue(lines.get(0), BookingDto.class);
+        Assertions.assertEquals(earlier.getId(), first.getId());
+        Assertions.assertEquals(earlier.getStart(), first.getStart());
+        Assertions.assertEquals(item.getName(), first.getItem().getName());
+        Assertions.assertEquals(booker.getId(), first.getBooker().getId());
+        Assertions.assertEquals(later.getId(), objectMapper.readValue(lines.get(1), BookingDto.class).getId());
+    }
+
+    @Test
+    void exportOfUnknownUserWritesNothing() {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        Assertions.assertThrows(NoSuchElementException.class,
+                () -> bookingExporter.export(999999L, false, BookingExportFormat.CSV, response));
+        Assertions.assertNull(response.getContentType());
+    }
+
+    private static String format(LocalDateTime dateTime) {
+        return DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(dateTime);
+    }
+}
@@ -0,0 +1,107 @@
+package ru.practicum.shareit.integration;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Testcontainers(disabledWithoutDocker = true)
+class BookingIndexPlanTest {
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:13.7-alpine");
+    private static Connection connection;
+
+    @BeforeAll
+    static void beforeAll() throws SQLException {
+        Flyway.configure()
+                .dataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword())
+                .locations("classpath:db/migration/common", "classpath:db/migration/postgresql")
+                .load()
+                .migrate();
+        connection = DriverManager.getConnection(postgres.getJdbcUrl(), postgres.getUsername(),
+                postgres.getPassword());
+        try (Statement statement = connection.createStatement()) {
+            //1000 users owning 20 items each, 200 000 bookings spread over a year, ids given to keep them dense
+            statement.execute("INSERT INTO users (id, name, email) SELECT g, 'user' || g, 'user' || g || '@test.ru'" +
+                    " FROM generate_series(1, 1000) g");
+            statement.execute("INSERT INTO items (id, name, description, available, owner_id)" +
+                    " SELECT g, 'item' || g, 'description' || g, true, (g % 1000) + 1" +
+                    " FROM generate_series(1, 20000) g");
+            statement.execute("INSERT INTO bookings" +
+                    " (id, start_date_time, end_date_time, item_id, booker_id, status, owner_id)" +
+                    " SELECT g, now() + (g % 365 - 180) * interval '1 day'," +
+                    " now() + (g % 365 - 179) * interval '1 day'," +
+                    " (g % 20000) + 1, (g % 997) + 1," +
+                    " CASE g % 3 WHEN 0 THEN 'WAITING' WHEN 1 THEN 'APPROVED' ELSE 'REJECTED' END," +
+                    " ((g % 20000) + 1) % 1000 + 1" +
+                    " FROM generate_series(1, 200000) g");
+            statement.execute("ANALYZE");
+        }
+    }
+
+    @AfterAll
+    static void afterAll() throws SQLException {
+        connection.close();
+    }
+
+    @Test
+    void bookerPagesUseStartIndex() throws SQLException {
+        assertPlanUses("ix_bookings_booker_start", "SELECT * FROM bookings b WHERE b.booker_id = 5" +
+                " AND (b.start_date_time < now() OR (b.start_date_time = now() AND b.id < 100000))" +
+                " ORDER BY b.start_date_time DESC, b.id DESC LIMIT 10");
+        assertPlanUses("ix_bookings_booker_start", "SELECT * FROM bookings b WHERE b.booker_id = 5" +
+                " AND b.start_date_time > now() ORDER BY b.start_date_time DESC LIMIT 10");
+    }
+
+    @Test
+    void bookerPastUsesEndIndex() throws SQLException {
+        assertPlanUses("ix_bookings_booker_end", "SELECT * FROM bookings b WHERE b.booker_id = 5" +
+                " AND b.end_date_time < now() - interval '170 days' LIMIT 10");
+    }
+
+    @Test
+    void bookerStatusUsesStatusIndex() throws SQLException {
+        assertPlanUses("ix_bookings_booker_status", "SELECT * FROM bookings b WHERE b.booker_id = 5" +
+                " AND b.status = 'WAITING' ORDER BY b.start_date_time DESC, b.id DESC LIMIT 10");
+    }
+
+    @Test
+    void lastAndNextBookingUseItemIndexes() throws SQLException {
+        assertPlanUses("ix_bookings_item_end", "SELECT * FROM bookings b WHERE b.item_id IN (1, 2, 3)" +
+                " AND b.end_date_time < now() ORDER BY b.end_date_time DESC");
+        assertPlanUses("ix_bookings_item_start", "SELECT * FROM bookings b WHERE b.item_id IN (1, 2, 3)" +
+                " AND b.start_date_time > now() ORDER BY b.start_date_time");
+    }
+
+    @Test
+    void ownerListsUseOwnerIndexes() throws SQLException {
+        assertPlanUses("ix_bookings_owner_start", "SELECT * FROM bookings b WHERE b.owner_id = 5" +
+                " AND (b.start_date_time < now() OR (b.start_date_time = now() AND b.id < 100000))" +
+                " ORDER BY b.start_date_time DESC, b.id DESC LIMIT 10");
+        assertPlanUses("ix_bookings_owner_end", "SELECT * FROM bookings b WHERE b.owner_id = 5" +
+                " AND b.end_date_time < now() - interval '170 days' LIMIT 10");
+        assertPlanUses("ix_bookings_owner_status", "SELECT * FROM bookings b WHERE b.owner_id = 5" +
+                " AND b.status = 'WAITING' ORDER BY b.start_date_time DESC, b.id DESC LIMIT 10");
+    }
+
+    private void assertPlanUses(String index, String sql) throws SQLException {
+        StringBuilder plan = new StringBuilder();
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("EXPLAIN " + sql)) {
+            while (resultSet.next())
+                plan.append(resultSet.getString(1)).append('\n');
+        }
+        assertTrue(plan.toString().contains(index), "Expected " + index + " in plan:\n" + plan);
+    }
+}
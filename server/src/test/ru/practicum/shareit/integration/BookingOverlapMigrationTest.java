@@ -0,0 +1,98 @@
+package ru.practicum.shareit.integration;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.FlywayException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//Overlapping bookings written before the exclusion constraint existed
+@Testcontainers(disabledWithoutDocker = true)
+class BookingOverlapMigrationTest {
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:13.7-alpine");
+
+    @BeforeEach
+    void beforeEach() throws SQLException {
+        flyway("5").clean();
+        flyway("5").migrate();
+        execute("INSERT INTO users (id, name, email)" +
+                " VALUES (1, 'Owner', 'owner@test.ru'), (2, 'Booker', 'booker@test.ru')",
+                "INSERT INTO items (id, name, description, available, owner_id) VALUES (1, 'Item', 'Item', true, 1)");
+    }
+
+    @Test
+    void keepsApprovedAndEarlierWaitingBookings() throws SQLException {
+        execute(booking(1, "2030-01-01", "2030-01-05", "WAITING"),
+                booking(2, "2030-01-03", "2030-01-04", "APPROVED"),
+                booking(3, "2030-02-01", "2030-02-05", "WAITING"),
+                booking(4, "2030-02-03", "2030-02-08", "WAITING"),
+                booking(5, "2030-03-01", "2030-03-05", "REJECTED"),
+                booking(6, "2030-03-02", "2030-03-03", "APPROVED"));
+
+        flyway(null).migrate();
+
+        assertEquals(Map.of(1L, "REJECTED", 2L, "APPROVED", 3L, "WAITING", 4L, "REJECTED", 5L, "REJECTED",
+                6L, "APPROVED"), statuses());
+    }
+
+    @Test
+    void failsOnOverlappingApprovedBookings() throws SQLException {
+        execute(booking(1, "2030-01-01", "2030-01-05", "APPROVED"),
+                booking(2, "2030-01-03", "2030-01-04", "APPROVED"));
+
+        FlywayException thrown = assertThrows(FlywayException.class, () -> flyway(null).migrate());
+        assertTrue(thrown.getMessage().contains("Approved bookings overlap"), thrown.getMessage());
+        assertTrue(thrown.getMessage().contains("1 and 2"), thrown.getMessage());
+        assertEquals(Map.of(1L, "APPROVED", 2L, "APPROVED"), statuses());
+    }
+
+    private Flyway flyway(String target) {
+        return Flyway.configure()
+                .dataSource(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword())
+                .locations("classpath:db/migration/common", "classpath:db/migration/postgresql")
+                .cleanDisabled(false)
+                .target(target == null ? "latest" : target)
+                .load();
+    }
+
+    private static String booking(long id, String start, String end, String status) {
+        return "INSERT INTO bookings (id, start_date_time, end_date_time, item_id, booker_id, status, owner_id)" +
+                " VALUES (" + id + ", '" + start + "', '" + end + "', 1, 2, '" + status + "', 1)";
+    }
+
+    private static void execute(String... sqls) throws SQLException {
+        try (Connection connection = connect(); Statement statement = connection.createStatement()) {
+            for (String sql : sqls)
+                statement.execute(sql);
+        }
+    }
+
+    private static Map<Long, String> statuses() throws SQLException {
+        Map<Long, String> statuses = new HashMap<>();
+        try (Connection connection = connect(); Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT id, status FROM bookings")) {
+            while (resultSet.next())
+                statuses.put(resultSet.getLong("id"), resultSet.getString("status"));
+        }
+        return statuses;
+    }
+
+    private static Connection connect() throws SQLException {
+        return DriverManager.getConnection(postgres.getJdbcUrl(), postgres.getUsername(), postgres.getPassword());
+    }
+}
@@ -0,0 +1,109 @@
+package ru.practicum.shareit.integration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.exception.ExistsElementException;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.service.UserService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Slf4j
+@Testcontainers(disabledWithoutDocker = true)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+class BookingOverlapStressTest {
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS = 2000;
+    private static final int ITEMS = 5;
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:13.7-alpine");
+
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private ItemService itemService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.driverClassName", postgres::getDriverClassName);
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Test
+    void concurrentOverlappingBookingsAreRejected() throws Exception {
+        User owner = userService.create(new User(null, "Owner", "owner@stress.ru"));
+        User booker = userService.create(new User(null, "Booker", "booker@stress.ru"));
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < ITEMS; i++)
+            items.add(itemService.create(owner.getId(), new Item(null, "Item " + i, "Stress item", true,
+                    owner, null)));
+        LocalDateTime base = LocalDateTime.now().withNano(0).plusDays(1);
+        AtomicInteger created = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        long started = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            Random random = new Random(t);
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < ATTEMPTS / THREADS; i++) {
+                    Item item = items.get(random.nextInt(ITEMS));
+                    LocalDateTime start = base.plusHours(random.nextInt(24 * 60));
+                    LocalDateTime end = start.plusHours(1 + random.nextInt(48));
+                    try {
+                        bookingService.create(booker.getId(), new Booking(null, start, end, item, booker,
+                                BookingStatus.WAITING, null));
+                        created.incrementAndGet();
+                    } catch (ExistsElementException e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures)
+            future.get();
+        executor.shutdown();
+        Assertions.assertTrue(executor.awaitTermination(1, TimeUnit.MINUTES));
+        double seconds = (System.nanoTime() - started) / 1e9;
+        log.info("{} bookings created, {} rejected in {} s, {} attempts/s", created.get(), rejected.get(),
+                String.format("%.2f", seconds), Math.round(ATTEMPTS / seconds));
+
+        Integer overlaps = jdbcTemplate.queryForObject("SELECT count(*) FROM bookings a JOIN bookings b" +
+                " ON a.item_id = b.item_id AND a.id < b.id" +
+                " AND a.start_date_time < b.end_date_time AND b.start_date_time < a.end_date_time" +
+                " WHERE a.status IN ('WAITING', 'APPROVED') AND b.status IN ('WAITING', 'APPROVED')", Integer.class);
+        Assertions.assertEquals(0, overlaps);
+        Assertions.assertEquals(ATTEMPTS, created.get() + rejected.get());
+        Assertions.assertTrue(created.get() > 0);
+        Assertions.assertTrue(rejected.get() > 0);
+    }
+}
@@ -0,0 +1,95 @@
+package ru.practicum.shareit.integration;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.service.UserService;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+//Concurrent creates for one item each recompute its pointers, the last one to commit must see all the bookings
+@Testcontainers(disabledWithoutDocker = true)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+class BookingPointerRaceTest {
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 50;
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:13.7-alpine");
+
+    @Autowired
+    private BookingService bookingService;
+    @Autowired
+    private ItemService itemService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.driverClassName", postgres::getDriverClassName);
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Test
+    void concurrentCreatesLeaveTheEarliestBookingNext() throws Exception {
+        User owner = userService.create(new User(null, "Owner", "owner@race.ru"));
+        List<User> bookers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++)
+            bookers.add(userService.create(new User(null, "Booker " + t, "booker" + t + "@race.ru")));
+        LocalDateTime base = LocalDateTime.now().withNano(0).plusDays(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                Item item = itemService.create(owner.getId(), new Item(null, "Item " + round, "Race item", true,
+                        owner, null));
+                CyclicBarrier barrier = new CyclicBarrier(THREADS);
+                List<Future<Booking>> futures = new ArrayList<>();
+                for (int t = 0; t < THREADS; t++) {
+                    User booker = bookers.get(t);
+                    //Later threads book earlier periods, so a create that misses another's booking points wrong
+                    LocalDateTime start = base.plusDays(THREADS - t);
+                    futures.add(executor.submit(() -> {
+                        barrier.await(10, TimeUnit.SECONDS);
+                        return bookingService.create(booker.getId(), new Booking(null, start, start.plusHours(1),
+                                item, booker, BookingStatus.WAITING, null));
+                    }));
+                }
+                List<Booking> bookings = new ArrayList<>();
+                for (Future<Booking> future : futures)
+                    bookings.add(future.get());
+                Booking earliest = bookings.stream().min(Comparator.comparing(Booking::getStart)).orElseThrow();
+
+                Long nextBookingId = jdbcTemplate.queryForObject("SELECT next_booking_id FROM items WHERE id = ?",
+                        Long.class, item.getId());
+                Assertions.assertEquals(earliest.getId(), nextBookingId, "round " + round);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -5,18 +5,24 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.BookingState;
 import ru.practicum.shareit.booking.model.BookingStatus;
 import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.exception.ValidateException;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.item.service.BookingPointerSweep;
 import ru.practicum.shareit.item.service.ItemService;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.service.UserService;
+import ru.practicum.shareit.util.Cursor;
 
 import javax.transaction.Transactional;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
 @Transactional
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
@@ -25,6 +31,9 @@ public class BookingServiceIntegrationTest {
     private final BookingService bookingService;
     private final ItemService itemService;
     private final UserService userService;
+    private final ItemRepository itemRepository;
+    private final BookingPointerSweep bookingPointerSweep;
+    private final JdbcTemplate jdbcTemplate;
 
     @Test
     public void getAllBookings() {
@@ -37,13 +46,13 @@ public class BookingServiceIntegrationTest {
         Item item3 = itemService.create(user.getId(), new Item(null, "Клей 3",
                 "Секундный клей момент", true, user, null));
         Booking booking1 = bookingService.create(someUser.getId(), new Booking(null, LocalDateTime.now().plusDays(1),
-                LocalDateTime.now().plusDays(2), item, someUser, BookingStatus.WAITING)
+                LocalDateTime.now().plusDays(2), item, someUser, BookingStatus.WAITING, null)
         );
         Booking booking2 = bookingService.create(someUser.getId(), new Booking(null, LocalDateTime.now().plusDays(1),
-                LocalDateTime.now().plusDays(2), item2, someUser, BookingStatus.WAITING)
+                LocalDateTime.now().plusDays(2), item2, someUser, BookingStatus.WAITING, null)
         );
         Booking booking3 = bookingService.create(someUser.getId(), new Booking(null, LocalDateTime.now().plusDays(1),
-                LocalDateTime.now().plusDays(2), item3, someUser, BookingStatus.WAITING)
+                LocalDateTime.now().plusDays(2), item3, someUser, BookingStatus.WAITING, null)
         );
         List<Booking> bookings = bookingService.findAllByOwnerId(user.getId(), BookingState.ALL, 0, 10);
         Assertions.assertEquals(3, bookings.size());
@@ -80,4 +89,121 @@ public class BookingServiceIntegrationTest {
         Assertions.assertEquals(1, bookingPastOwner.size());
 
     }
+
+    @Test
+    public void findLastAndNextBookingsByItemIds() {
+        User user = userService.create(new User(null, "Name", "test@test.ru"));
+        User someUser = userService.create(new User(null, "Name 2", "test2@test2.ru"));
+        Item item = itemService.create(user.getId(), new Item(null, "Клей", "Секундный клей момент",
+                true, user, null));
+        Item item2 = itemService.create(user.getId(), new Item(null, "Клей 2",
+                "Секундный клей момент", true, user, null));
+        Booking pastBooking = bookingService.create(someUser.getId(), new Booking(null,
+                LocalDateTime.now().plusDays(1), LocalDateTime.now().plusDays(2), item, someUser,
+                BookingStatus.WAITING, null));
+        Booking nextBooking = bookingService.create(someUser.getId(), new Booking(null,
+                LocalDateTime.now().plusDays(3), LocalDateTime.now().plusDays(4), item, someUser,
+                BookingStatus.WAITING, null));
+        bookingService.create(someUser.getId(), new Booking(null, LocalDateTime.now().plusDays(5),
+                LocalDateTime.now().plusDays(6), item, someUser, BookingStatus.WAITING, null));
+        pastBooking.setStart(LocalDateTime.now().minusDays(10));
+        pastBooking.setEnd(LocalDateTime.now().minusDays(8));
+        // Dates changed behind the service, recompute the item pointers
+        itemRepository.refreshBookingPointers(item.getId(), LocalDateTime.now());
+
+        List<Long> itemIds = List.of(item.getId(), item2.getId());
+        Map<Long, Booking> lastBookings = bookingService.findLastBookingsByItemIds(itemIds);
+        Map<Long, Booking> nextBookings = bookingService.findNextBookingsByItemIds(itemIds);
+        Assertions.assertEquals(1, lastBookings.size());
+        Assertions.assertEquals(pastBooking.getId(), lastBookings.get(item.getId()).getId());
+        Assertions.assertEquals(1, nextBookings.size());
+        Assertions.assertEquals(nextBooking.getId(), nextBookings.get(item.getId()).getId());
+        Assertions.assertTrue(bookingService.findLastBookingsByItemIds(List.of()).isEmpty());
+    }
+
+    @Test
+    public void findAllByOwnerIdWithCursor() {
+        User user = userService.create(new User(null, "Name", "test@test.ru"));
+        User someUser = userService.create(new User(null, "Name 2", "test2@test2.ru"));
+        Item item = itemService.create(user.getId(), new Item(null, "Клей", "Секундный клей момент",
+                true, user, null));
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        Booking booking1 = bookingService.create(someUser.getId(), new Booking(null, now.plusDays(1),
+                now.plusDays(2), item, someUser, BookingStatus.WAITING, null));
+        Booking booking2 = bookingService.create(someUser.getId(), new Booking(null, now.plusDays(3),
+                now.plusDays(4), item, someUser, BookingStatus.WAITING, null));
+        Booking booking3 = bookingService.create(someUser.getId(), new Booking(null, now.plusDays(3),
+                now.plusDays(5), item, someUser, BookingStatus.WAITING, null));
+
+        List<Booking> firstPage = bookingService.findAllByOwnerId(user.getId(), BookingState.ALL, Cursor.first(), 2);
+        Assertions.assertEquals(List.of(booking3.getId(), booking2.getId()),
+                List.of(firstPage.get(0).getId(), firstPage.get(1).getId()));
+        Booking last = firstPage.get(1);
+        Cursor cursor = Cursor.decode(Cursor.of(last.getStart(), last.getId()).encode());
+        List<Booking> secondPage = bookingService.findAllByOwnerId(user.getId(), BookingState.FUTURE, cursor, 2);
+        Assertions.assertEquals(1, secondPage.size());
+        Assertions.assertEquals(booking1.getId(), secondPage.get(0).getId());
+        List<Booking> userPage = bookingService.findAllByUserId(someUser.getId(), BookingState.WAITING, cursor, 2);
+        Assertions.assertEquals(1, userPage.size());
+    }
+
+    @Test
+    public void expiredBookingPointersFallBackUntilSwept() {
+        User user = userService.create(new User(null, "Name", "test@test.ru"));
+        User someUser = userService.create(new User(null, "Name 2", "test2@test2.ru"));
+        Item item = itemService.create(user.getId(), new Item(null, "Клей", "Секундный клей момент",
+                true, user, null));
+        Booking pastBooking = bookingService.create(someUser.getId(), new Booking(null,
+                LocalDateTime.now().plusDays(1), LocalDateTime.now().plusDays(2), item, someUser,
+                BookingStatus.WAITING, null));
+        Booking nextBooking = bookingService.create(someUser.getId(), new Booking(null,
+                LocalDateTime.now().plusDays(3), LocalDateTime.now().plusDays(4), item, someUser,
+                BookingStatus.WAITING, null));
+        pastBooking.setStart(LocalDateTime.now().minusDays(10));
+        pastBooking.setEnd(LocalDateTime.now().minusDays(8));
+        // Pointers computed before the past booking started have expired by now
+        itemRepository.refreshBookingPointers(item.getId(), LocalDateTime.now().minusDays(20));
+
+        Assertions.assertEquals(pastBooking.getId(), bookingService.findLastBookingByItemId(item.getId()).getId());
+        Assertions.assertEquals(nextBooking.getId(), bookingService.findNextBookingByItemId(item.getId()).getId());
+
+        bookingPointerSweep.sweep();
+        Map<String, Object> pointers = jdbcTemplate.queryForMap("SELECT last_booking_id, next_booking_id," +
+                " booking_pointers_until FROM items WHERE id = ?", item.getId());
+        Assertions.assertEquals(pastBooking.getId(), ((Number) pointers.get("last_booking_id")).longValue());
+        Assertions.assertEquals(nextBooking.getId(), ((Number) pointers.get("next_booking_id")).longValue());
+        Assertions.assertNotNull(pointers.get("booking_pointers_until"));
+        Assertions.assertEquals(pastBooking.getId(),
+                bookingService.findLastBookingsByItemIds(List.of(item.getId())).get(item.getId()).getId());
+    }
+
+    @Test
+    public void approveBookingsDecidesOnlyOwnWaitingBookings() {
+        User user = userService.create(new User(null, "Name", "test@test.ru"));
+        User someUser = userService.create(new User(null, "Name 2", "test2@test2.ru"));
+        User otherOwner = userService.create(new User(null, "Name 3", "test3@test3.ru"));
+        Item item = itemService.create(user.getId(), new Item(null, "Клей", "Секундный клей момент",
+                true, user, null));
+        Item otherItem = itemService.create(otherOwner.getId(), new Item(null, "Дрель", "Аккумуляторная дрель",
+                true, otherOwner, null));
+        Booking waiting = bookingService.create(someUser.getId(), new Booking(null, LocalDateTime.now().plusDays(1),
+                LocalDateTime.now().plusDays(2), item, someUser, BookingStatus.WAITING, null));
+        Booking approved = bookingService.create(someUser.getId(), new Booking(null, LocalDateTime.now().plusDays(3),
+                LocalDateTime.now().plusDays(4), item, someUser, BookingStatus.WAITING, null));
+        Booking foreign = bookingService.create(someUser.getId(), new Booking(null, LocalDateTime.now().plusDays(1),
+                LocalDateTime.now().plusDays(2), otherItem, someUser, BookingStatus.WAITING, null));
+        Assertions.assertEquals(BookingStatus.APPROVED,
+                bookingService.approveBooking(user.getId(), approved.getId(), true).getStatus());
+
+        List<Booking> decided = bookingService.approveBookings(user.getId(),
+                List.of(waiting.getId(), approved.getId(), foreign.getId(), 999L), false);
+        Assertions.assertEquals(1, decided.size());
+        Assertions.assertEquals(waiting.getId(), decided.get(0).getId());
+        Assertions.assertEquals(BookingStatus.REJECTED, decided.get(0).getStatus());
+        Exception thrown = Assertions.assertThrows(ValidateException.class, () ->
+                bookingService.approveBooking(user.getId(), waiting.getId(), true));
+        Assertions.assertEquals("Booking status is already rejected", thrown.getMessage());
+        Assertions.assertEquals(BookingStatus.WAITING,
+                bookingService.getByIdEndUserId(foreign.getId(), otherOwner.getId()).getStatus());
+    }
 }
@@ -0,0 +1,92 @@
+package ru.practicum.shareit.integration;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.item.dto.ItemDtoWithBooking;
+import ru.practicum.shareit.item.model.Comment;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.CommentRepository;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.service.UserService;
+
+import java.time.LocalDateTime;
+import java.util.NoSuchElementException;
+
+@Testcontainers(disabledWithoutDocker = true)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+class ItemCardQueryTest {
+    @Container
+    private static final PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:13.7-alpine");
+
+    @Autowired
+    private ItemService itemService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private CommentRepository commentRepository;
+    @Autowired
+    private ItemRepository itemRepository;
+
+    @DynamicPropertySource
+    static void postgresProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.driverClassName", postgres::getDriverClassName);
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+        registry.add("shareit.items.card-query", () -> "true");
+    }
+
+    @Test
+    void cardHasBookingsForOwnerAndCommentsForEveryone() {
+        User owner = userService.create(new User(null, "Owner", "owner@test.ru"));
+        User booker = userService.create(new User(null, "Booker", "booker@test.ru"));
+        Item item = itemService.create(owner.getId(), new Item(null, "Клей", "Секундный клей момент",
+                true, owner, null));
+        LocalDateTime now = LocalDateTime.now();
+        bookingRepository.save(new Booking(null, now.minusDays(5), now.minusDays(4), item, booker,
+                BookingStatus.APPROVED, owner.getId()));
+        Booking last = bookingRepository.save(new Booking(null, now.minusDays(3), now.minusDays(2), item, booker,
+                BookingStatus.APPROVED, owner.getId()));
+        Booking next = bookingRepository.save(new Booking(null, now.plusDays(1), now.plusDays(2), item, booker,
+                BookingStatus.WAITING, owner.getId()));
+        bookingRepository.save(new Booking(null, now.plusDays(3), now.plusDays(4), item, booker,
+                BookingStatus.WAITING, owner.getId()));
+        //Bookings saved directly bypass the service, so their item pointers are refreshed here
+        itemRepository.refreshBookingPointers(item.getId(), now);
+        commentRepository.save(new Comment(null, "Первый", item, booker, now.minusDays(1)));
+        Comment latest = commentRepository.save(new Comment(null, "Второй", item, booker, now));
+
+        ItemDtoWithBooking ownerCard = itemService.getCard(owner.getId(), item.getId());
+        Assertions.assertEquals(item.getName(), ownerCard.getName());
+        Assertions.assertEquals(last.getId(), ownerCard.getLastBooking().getId());
+        Assertions.assertEquals(booker.getId(), ownerCard.getLastBooking().getBookerId());
+        Assertions.assertEquals(next.getId(), ownerCard.getNextBooking().getId());
+        Assertions.assertEquals(2, ownerCard.getComments().size());
+        Assertions.assertEquals(latest.getId(), ownerCard.getComments().get(0).getId());
+        Assertions.assertEquals("Booker", ownerCard.getComments().get(0).getAuthorName());
+
+        ItemDtoWithBooking bookerCard = itemService.getCard(booker.getId(), item.getId());
+        Assertions.assertNull(bookerCard.getLastBooking());
+        Assertions.assertNull(bookerCard.getNextBooking());
+        Assertions.assertEquals(2, bookerCard.getComments().size());
+    }
+
+    @Test
+    void cardOfUnknownItemIsNotFound() {
+        Assertions.assertThrows(NoSuchElementException.class, () -> itemService.getCard(1L, 999L));
+    }
+}
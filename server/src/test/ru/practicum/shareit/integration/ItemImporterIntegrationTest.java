@@ -0,0 +1,84 @@
+package ru.practicum.shareit.integration;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.practicum.shareit.item.dto.ItemImportResult;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.service.ItemImporter;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.service.UserService;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE,
+        properties = "shareit.items.import.chunk-size=3")
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+class ItemImporterIntegrationTest {
+    private final ItemImporter itemImporter;
+    private final ItemService itemService;
+    private final UserService userService;
+
+    @Test
+    void importReportsEveryRejectedLine() throws Exception {
+        User owner = userService.create(new User(null, "Owner", "owner@import.ru"));
+        itemService.create(owner.getId(), new Item(null, "Клей", "Секундный клей момент", true, owner, null));
+        String body = String.join("\n",
+                "{\"name\":\"Клей\",\"description\":\"Ещё клей\",\"available\":true}",
+                "{\"name\":\"Молоток\",\"description\":\"Стальной\",\"available\":true}",
+                "",
+                "not json",
+                "{\"name\":\"Молоток\",\"description\":\"Второй\",\"available\":true}",
+                "{\"name\":\"Пила\",\"description\":\"Ножовка\",\"available\":true,\"requestId\":999999}",
+                "{\"name\":\"Пила\",\"description\":\" \",\"available\":true}",
+                "{\"id\":1,\"name\":\"Пила\",\"description\":\"Ножовка\",\"available\":false}");
+
+        ItemImportResult result = itemImporter.importItems(owner.getId(),
+                new BufferedReader(new StringReader(body)));
+
+        Assertions.assertEquals(7, result.getReceived());
+        Assertions.assertEquals(2, result.getCreated());
+        Assertions.assertEquals(List.of(
+                new ItemImportResult.Failure(1, "Item name exists"),
+                new ItemImportResult.Failure(4, "Malformed item json"),
+                new ItemImportResult.Failure(5, "Item name exists"),
+                new ItemImportResult.Failure(6, "Request not found"),
+                new ItemImportResult.Failure(7, "Description is empty")), result.getFailures());
+        List<String> names = itemService.getAllByUser(owner.getId(), 0, 10).stream()
+                .map(Item::getName)
+                .collect(Collectors.toList());
+        Assertions.assertEquals(List.of("Клей", "Молоток", "Пила"), names);
+    }
+
+    @Test
+    void importReportsWhatTheDatabaseRejected() throws Exception {
+        User owner = userService.create(new User(null, "Owner", "owner2@import.ru"));
+        String body = String.join("\n",
+                "{\"name\":\"Клей\",\"description\":\"Секундный\",\"available\":true}",
+                "{\"name\":\"" + "Н".repeat(256) + "\",\"description\":\"Длинный\",\"available\":true}",
+                "{\"name\":\"Пила\",\"description\":\"Ножовка\",\"available\":true}");
+
+        ItemImportResult result = itemImporter.importItems(owner.getId(),
+                new BufferedReader(new StringReader(body)));
+
+        Assertions.assertEquals(2, result.getCreated());
+        Assertions.assertEquals(1, result.getFailures().size());
+        ItemImportResult.Failure failure = result.getFailures().get(0);
+        Assertions.assertEquals(2, failure.getLine());
+        Assertions.assertTrue(failure.getError().toLowerCase().contains("too long"), failure.getError());
+    }
+
+    @Test
+    void importRequiresExistingOwner() {
+        Exception thrown = Assertions.assertThrows(NoSuchElementException.class, () ->
+                itemImporter.importItems(999999L, new BufferedReader(new StringReader(""))));
+        Assertions.assertEquals("User not found", thrown.getMessage());
+    }
+}
@@ -5,12 +5,20 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.jdbc.core.JdbcTemplate;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.request.service.ItemRequestService;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.service.UserService;
 
 import javax.transaction.Transactional;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 
 @Transactional
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
@@ -18,6 +26,9 @@ import javax.transaction.Transactional;
 public class ItemServiceIntegrationTest {
     private final ItemService itemService;
     private final UserService userService;
+    private final ItemRequestService itemRequestService;
+    private final CacheManager cacheManager;
+    private final JdbcTemplate jdbcTemplate;
 
     @Test
     public void getAllByUser() {
@@ -47,5 +58,89 @@ public class ItemServiceIntegrationTest {
         Assertions.assertEquals("Суперклей", itemUpdate.getDescription());
     }
 
+    @Test
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public void updateLeavesTheCacheToTheLoadedItem() {
+        //Committed, the caches only see the changes of committed transactions
+        User user = userService.create(new User(null, "Owner", "owner@cache.ru"));
+        Item item = itemService.create(user.getId(), new Item(null, "Дрель", "Ударная дрель", true, user, null));
+        try {
+            itemService.update(user.getId(), item.getId(), new Item(null, null, "Дрель без удара", null, null, null));
+            Assertions.assertNull(cacheManager.getCache("items").get(item.getId()));
+
+            itemService.getById(item.getId());
+            Item cachedItem = cacheManager.getCache("items").get(item.getId(), Item.class);
+            Assertions.assertEquals("Дрель без удара", cachedItem.getDescription());
+            Assertions.assertEquals("Owner", cachedItem.getOwner().getName());
+            Assertions.assertEquals("owner@cache.ru", cachedItem.getOwner().getEmail());
+        } finally {
+            cacheManager.getCache("items").evict(item.getId());
+            jdbcTemplate.update("DELETE FROM items WHERE id = ?", item.getId());
+            userService.remove(user.getId());
+        }
+    }
+
+    @Test
+    public void shouldUpdateOnlyProvidedFieldsOfOwnItem() {
+        User user = userService.create(new User(null, "Name", "test@test.ru"));
+        User someUser = userService.create(new User(null, "Name 2", "test2@test2.ru"));
+        Item item = itemService.create(user.getId(), new Item(null, "Клей", "Секундный клей момент",
+                true, user, null));
+        Item itemUpdate = itemService.update(user.getId(), item.getId(), new Item(null, " ", null,
+                false, null, null));
+        Assertions.assertEquals("Клей", itemUpdate.getName());
+        Assertions.assertEquals("Секундный клей момент", itemUpdate.getDescription());
+        Assertions.assertFalse(itemUpdate.getAvailable());
+        Assertions.assertEquals(user.getId(), itemUpdate.getOwner().getId());
+        Exception thrown = Assertions.assertThrows(NoSuchElementException.class, () ->
+                itemService.update(someUser.getId(), item.getId(), new Item(null, "Чужой клей", null,
+                        null, null, null)));
+        Assertions.assertEquals("Access denied", thrown.getMessage());
+        thrown = Assertions.assertThrows(NoSuchElementException.class, () ->
+                itemService.update(user.getId(), item.getId() + 100, new Item(null, "Клей 2", null,
+                        null, null, null)));
+        Assertions.assertEquals("Item not found", thrown.getMessage());
+        Assertions.assertEquals("Клей", itemService.update(user.getId(), item.getId(), new Item()).getName());
+    }
+
+    @Test
+    public void findByRequestIds() {
+        User user = userService.create(new User(null, "Name", "test@test.ru"));
+        User someUser = userService.create(new User(null, "Name 2", "test2@test2.ru"));
+        ItemRequest request = itemRequestService.create(new ItemRequest(null, "Нужен Клей", someUser,
+                LocalDateTime.now()));
+        ItemRequest request2 = itemRequestService.create(new ItemRequest(null, "Нужна дрель", someUser,
+                LocalDateTime.now()));
+        ItemRequest request3 = itemRequestService.create(new ItemRequest(null, "Нужен молоток", someUser,
+                LocalDateTime.now()));
+        Item item = itemService.create(user.getId(), new Item(null, "Клей", "Секундный клей момент",
+                true, user, request));
+        Item item2 = itemService.create(user.getId(), new Item(null, "Клей 2", "Секундный клей момент",
+                true, user, request));
+        Item item3 = itemService.create(user.getId(), new Item(null, "Дрель", "Аккумуляторная дрель",
+                true, user, request2));
+        Map<Long, List<Item>> items = itemService.findByRequestIds(List.of(request.getId(), request2.getId(),
+                request3.getId()));
+        Assertions.assertEquals(2, items.size());
+        Assertions.assertEquals(List.of(item2.getId(), item.getId()),
+                List.of(items.get(request.getId()).get(0).getId(), items.get(request.getId()).get(1).getId()));
+        Assertions.assertEquals(item3.getId(), items.get(request2.getId()).get(0).getId());
+        Assertions.assertNull(items.get(request3.getId()));
+    }
 
+    @Test
+    public void searchByTextEscapesWildcardsAndSkipsUnavailable() {
+        User user = userService.create(new User(null, "Name", "test@test.ru"));
+        Item item = itemService.create(user.getId(), new Item(null, "Клей", "Скидка 50% на клей",
+                true, user, null));
+        itemService.create(user.getId(), new Item(null, "Клей 2", "Секундный клей момент",
+                false, user, null));
+        itemService.create(user.getId(), new Item(null, "Клей 3", "Скидка 505 на клей",
+                true, user, null));
+        List<Item> items = itemService.searchByText("50%", 0, 10);
+        Assertions.assertEquals(1, items.size());
+        Assertions.assertEquals(item.getId(), items.get(0).getId());
+        Assertions.assertEquals(2, itemService.searchByText("клей", 0, 10).size());
+        Assertions.assertTrue(itemService.searchByText("_", 0, 10).isEmpty());
+    }
 }
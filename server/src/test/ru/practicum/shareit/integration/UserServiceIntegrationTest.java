@@ -5,6 +5,9 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.shareit.exception.ExistsElementException;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.service.UserService;
 
@@ -18,6 +21,8 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
 public class UserServiceIntegrationTest {
     private final UserService userService;
+    private final CacheManager cacheManager;
+    private final TransactionTemplate transactionTemplate;
 
     @Test
     public void getAll() {
@@ -32,13 +37,19 @@ public class UserServiceIntegrationTest {
     }
 
     @Test
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
     public void shouldUpdate() {
+        //Committed, the cache takes the update once its transaction commits
         User user = userService.create(new User(null, "Name", "test@test.ru"));
-        userService.update(user.getId(), new User(null, "updateUser", "mail@test.ru"));
-        User updateUser = userService.getById(user.getId());
-        Assertions.assertEquals(user.getId(), updateUser.getId());
-        Assertions.assertEquals("updateUser", updateUser.getName());
-        Assertions.assertEquals("mail@test.ru", updateUser.getEmail());
+        try {
+            userService.update(user.getId(), new User(null, "updateUser", "mail@test.ru"));
+            User updateUser = userService.getById(user.getId());
+            Assertions.assertEquals(user.getId(), updateUser.getId());
+            Assertions.assertEquals("updateUser", updateUser.getName());
+            Assertions.assertEquals("mail@test.ru", updateUser.getEmail());
+        } finally {
+            userService.remove(user.getId());
+        }
     }
 
     @Test
@@ -49,4 +60,64 @@ public class UserServiceIntegrationTest {
         assertFalse(userService.getAll().contains(user.getId()));
 
     }
+
+    @Test
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public void shouldCacheAndEvictUser() {
+        //Committed, the caches only see the changes of committed transactions
+        User user = userService.create(new User(null, "Name", "cache@test.ru"));
+        try {
+            userService.update(user.getId(), new User(null, "updateUser", null));
+            User cachedUser = cacheManager.getCache("users").get(user.getId(), User.class);
+            Assertions.assertEquals("updateUser", cachedUser.getName());
+            Assertions.assertSame(userService.getById(user.getId()), userService.getById(user.getId()));
+        } finally {
+            userService.remove(user.getId());
+        }
+        Assertions.assertNull(cacheManager.getCache("users").get(user.getId()));
+    }
+
+    @Test
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public void shouldLeaveCacheToCommittedUpdates() {
+        User user = userService.create(new User(null, "Name", "rollback@test.ru"));
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                userService.update(user.getId(), new User(null, "Rolled back", null));
+                status.setRollbackOnly();
+            });
+            Assertions.assertEquals("Name", cacheManager.getCache("users").get(user.getId(), User.class).getName());
+            Assertions.assertEquals("Name", userService.getById(user.getId()).getName());
+        } finally {
+            userService.remove(user.getId());
+        }
+    }
+
+    @Test
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public void shouldAnswerEmptyPatchFromCache() {
+        User user = userService.create(new User(null, "Name", "empty@test.ru"));
+        try {
+            User cachedUser = cacheManager.getCache("users").get(user.getId(), User.class);
+            Assertions.assertSame(cachedUser, userService.update(user.getId(), new User(null, " ", null)));
+
+            cacheManager.getCache("users").evict(user.getId());
+            User foundUser = userService.update(user.getId(), new User(null, null, null));
+            Assertions.assertEquals("Name", foundUser.getName());
+            Assertions.assertSame(foundUser, cacheManager.getCache("users").get(user.getId(), User.class));
+        } finally {
+            userService.remove(user.getId());
+        }
+    }
+
+    @Test
+    public void shouldCheckEmailExactlyIgnoringCase() {
+        User user = userService.create(new User(null, "Name", "test@test.ru"));
+        User other = userService.create(new User(null, "Name 2", "est@test.ru"));
+        userService.update(user.getId(), new User(null, null, "TEST@test.ru"));
+        Assertions.assertThrows(ExistsElementException.class,
+                () -> userService.update(other.getId(), new User(null, null, "Test@Test.ru")));
+        Assertions.assertThrows(ExistsElementException.class,
+                () -> userService.create(new User(null, "Name 3", "test@TEST.ru")));
+    }
 }
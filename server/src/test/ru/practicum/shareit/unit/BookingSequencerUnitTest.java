@@ -0,0 +1,228 @@
+package ru.practicum.shareit.unit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.BookingStatus;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.booking.service.BookingSequencer;
+import ru.practicum.shareit.exception.ExistsElementException;
+import ru.practicum.shareit.exception.OverloadException;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class BookingSequencerUnitTest {
+    private final User ownerUser = new User(1L, "Name", "test@test.ru");
+    private final User someUser = new User(2L, "Name 2", "test2@test.ru");
+    private final Item item = new Item(1L, "Клей", "Секундный клей момент", true, ownerUser, null);
+    private final LocalDateTime start = LocalDateTime.now().plusDays(1);
+    private final AtomicLong ids = new AtomicLong();
+    @Mock
+    BookingRepository bookingRepository;
+    @Mock
+    UserRepository userRepository;
+    @Mock
+    ItemRepository itemRepository;
+    @Mock
+    PlatformTransactionManager transactionManager;
+    BookingSequencer bookingSequencer;
+
+    @BeforeEach
+    public void beforeEach() {
+        when(userRepository.findById(anyLong()))
+                .thenReturn(Optional.of(someUser));
+        when(itemRepository.findById(anyLong()))
+                .thenReturn(Optional.of(item));
+        when(bookingRepository.findByItem_IdAndStatusInAndEndAfter(anyLong(), anyCollection(), any()))
+                .thenReturn(List.of());
+    }
+
+    @AfterEach
+    public void afterEach() throws InterruptedException {
+        bookingSequencer.stop();
+    }
+
+    @Test
+    public void shouldRejectOverlapFromLaneView() {
+        startSequencer(256, 5000);
+        when(bookingRepository.save(any()))
+                .thenAnswer(invocation -> saved(invocation.getArgument(0)));
+        Booking first = bookingSequencer.submit(2L, booking(0, 2));
+        assertEquals(BookingStatus.WAITING, first.getStatus());
+        Exception thrown = assertThrows(ExistsElementException.class, () ->
+                bookingSequencer.submit(2L, booking(1, 3)));
+        assertEquals("Item is already booked for these dates", thrown.getMessage());
+        bookingSequencer.submit(2L, booking(2, 4));
+        verify(bookingRepository, times(2)).save(any());
+        verify(bookingRepository, times(1)).findByItem_IdAndStatusInAndEndAfter(anyLong(), anyCollection(), any());
+
+        bookingSequencer.forget(item.getId());
+        bookingSequencer.submit(2L, booking(1, 3));
+        verify(bookingRepository, times(2)).findByItem_IdAndStatusInAndEndAfter(anyLong(), anyCollection(), any());
+    }
+
+    @Test
+    public void shouldRejectFastWhenLaneIsSaturated() throws Exception {
+        startSequencer(1, 500);
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(bookingRepository.save(any()))
+                .thenAnswer(invocation -> {
+                    writing.countDown();
+                    assertTrue(release.await(5, TimeUnit.SECONDS));
+                    return saved(invocation.getArgument(0));
+                });
+        CompletableFuture<Booking> blocked = CompletableFuture.supplyAsync(() ->
+                bookingSequencer.submit(2L, booking(0, 1)));
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+        Exception timedOut = assertThrows(OverloadException.class, () -> bookingSequencer.submit(2L, booking(2, 3)));
+        assertEquals("Booking was not processed in time, try again later", timedOut.getMessage());
+        Exception saturated = assertThrows(OverloadException.class, () -> bookingSequencer.submit(2L, booking(4, 5)));
+        assertEquals("Too many bookings for this item, try again later", saturated.getMessage());
+
+        release.countDown();
+        // The first caller outlived its timeout while its booking was written, it still gets that booking
+        Booking written = blocked.get(5, TimeUnit.SECONDS);
+        assertEquals(start, written.getStart());
+        // The lane skips the expired booking queued before this one, so it is never written
+        Booking next = submitOnceQueued(booking(6, 7));
+        assertEquals(start.plusDays(6), next.getStart());
+        verify(bookingRepository, times(2)).save(any());
+        verify(bookingRepository, never()).save(argThat(booking -> booking.getStart().equals(start.plusDays(2))));
+    }
+
+    @Test
+    public void shouldGiveUpOnTakenBookingAfterSecondTimeout() throws Exception {
+        startSequencer(256, 200);
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(bookingRepository.save(any()))
+                .thenAnswer(invocation -> {
+                    writing.countDown();
+                    assertTrue(release.await(5, TimeUnit.SECONDS));
+                    return saved(invocation.getArgument(0));
+                });
+        CompletableFuture<Booking> blocked = CompletableFuture.supplyAsync(() ->
+                bookingSequencer.submit(2L, booking(0, 1)));
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+        ExecutionException thrown = assertThrows(ExecutionException.class, () -> blocked.get(5, TimeUnit.SECONDS));
+        assertTrue(thrown.getCause() instanceof OverloadException);
+        assertEquals("Booking is still being processed, check your bookings later", thrown.getCause().getMessage());
+        release.countDown();
+    }
+
+    @Test
+    public void shouldFailQueuedBookingsOnStop() throws Exception {
+        startSequencer(256, 5000);
+        CountDownLatch writing = new CountDownLatch(1);
+        when(bookingRepository.save(any()))
+                .thenAnswer(invocation -> {
+                    writing.countDown();
+                    //Held until the lane is interrupted by stop
+                    try {
+                        new CountDownLatch(1).await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return saved(invocation.getArgument(0));
+                });
+        CompletableFuture<Booking> written = CompletableFuture.supplyAsync(() ->
+                bookingSequencer.submit(2L, booking(0, 1)));
+        assertTrue(writing.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Booking> queued = new CompletableFuture<>();
+        Thread caller = new Thread(() -> {
+            try {
+                queued.complete(bookingSequencer.submit(2L, booking(2, 3)));
+            } catch (RuntimeException e) {
+                queued.completeExceptionally(e);
+            }
+        });
+        caller.start();
+        //The caller waits for its result only once its booking is queued
+        while (caller.getState() != Thread.State.TIMED_WAITING)
+            Thread.onSpinWait();
+
+        bookingSequencer.stop();
+        ExecutionException thrown = assertThrows(ExecutionException.class, () -> queued.get(1, TimeUnit.SECONDS));
+        assertTrue(thrown.getCause() instanceof OverloadException);
+        assertEquals("Bookings are not accepted now, try again later", thrown.getCause().getMessage());
+        assertEquals(start, written.get(1, TimeUnit.SECONDS).getStart());
+        verify(bookingRepository, times(1)).save(any());
+    }
+
+    @Test
+    public void shouldReloadViewOfItemNotBookedForAWhile() throws Exception {
+        startSequencer(256, 5000, 50);
+        when(bookingRepository.save(any()))
+                .thenAnswer(invocation -> saved(invocation.getArgument(0)));
+        bookingSequencer.submit(2L, booking(0, 1));
+        bookingSequencer.submit(2L, booking(2, 3));
+        verify(bookingRepository, times(1)).findByItem_IdAndStatusInAndEndAfter(anyLong(), anyCollection(), any());
+
+        Thread.sleep(100);
+        bookingSequencer.submit(2L, booking(4, 5));
+        verify(bookingRepository, times(2)).findByItem_IdAndStatusInAndEndAfter(anyLong(), anyCollection(), any());
+    }
+
+    private void startSequencer(int queueCapacity, long timeoutMs) {
+        startSequencer(queueCapacity, timeoutMs, 600000);
+    }
+
+    private void startSequencer(int queueCapacity, long timeoutMs, long viewExpireMs) {
+        bookingSequencer = new BookingSequencer(bookingRepository, userRepository, itemRepository,
+                transactionManager, true, 1, queueCapacity, 16, timeoutMs, 10000, viewExpireMs);
+        bookingSequencer.start();
+    }
+
+    //The queue is full until the lane takes the expired booking, the fast rejection is retried until then
+    private Booking submitOnceQueued(Booking booking) {
+        while (true) {
+            try {
+                return bookingSequencer.submit(2L, booking);
+            } catch (OverloadException e) {
+                assertEquals("Too many bookings for this item, try again later", e.getMessage());
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    private Booking booking(int startDay, int endDay) {
+        return new Booking(null, start.plusDays(startDay), start.plusDays(endDay), item, null, null, null);
+    }
+
+    private Booking saved(Booking booking) {
+        booking.setId(ids.incrementAndGet());
+        return booking;
+    }
+}
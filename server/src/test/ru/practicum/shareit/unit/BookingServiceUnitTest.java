@@ -5,25 +5,35 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.BookingStatus;
 import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.booking.service.BookingSequencer;
 import ru.practicum.shareit.booking.service.BookingService;
 import ru.practicum.shareit.booking.service.BookingServiceImpl;
+import ru.practicum.shareit.exception.ExistsElementException;
 import ru.practicum.shareit.exception.ValidateException;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.ItemRepository;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.user.service.UserExistence;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
+import static ru.practicum.shareit.util.Constant.MAX_BULK_DECISIONS;
 
 @ExtendWith(MockitoExtension.class)
 class BookingServiceUnitTest {
@@ -33,18 +43,31 @@ class BookingServiceUnitTest {
     private final Item item = new Item(1L, "Клей", "Секундный клей момент", true, ownerUser,
             null);
     private final Booking booking = new Booking(1L, LocalDateTime.now().plusDays(1), LocalDateTime.now().plusDays(2),
-            item, someUser, BookingStatus.WAITING);
+            item, someUser, BookingStatus.WAITING, null);
     @Mock
     BookingRepository bookingRepository;
     @Mock
     UserRepository userRepository;
     @Mock
     ItemRepository itemRepository;
+    @Mock
+    BookingSequencer bookingSequencer;
     BookingService bookingService;
 
     @BeforeEach
     public void beforeEach() {
-        bookingService = new BookingServiceImpl(bookingRepository, userRepository, itemRepository);
+        bookingService = new BookingServiceImpl(bookingRepository, userRepository, itemRepository,
+                new UserExistence(userRepository), bookingSequencer);
+    }
+
+    @Test
+    public void shouldRejectTooManyBookingsDecidedAtOnce() {
+        List<Long> bookingIds = LongStream.rangeClosed(1, MAX_BULK_DECISIONS + 1).boxed()
+                .collect(Collectors.toList());
+        Exception thrown = assertThrows(ValidateException.class,
+                () -> bookingService.approveBookings(1L, bookingIds, true));
+        assertEquals("No more than 1000 bookings can be decided at once", thrown.getMessage());
+        verifyNoInteractions(bookingRepository, userRepository);
     }
 
     @Test
@@ -92,6 +115,29 @@ class BookingServiceUnitTest {
         assertEquals("End before start", thrown.getMessage());
     }
 
+    @Test
+    public void shouldExistsExceptionOverlappingBooking() {
+        when(userRepository.findById(anyLong()))
+                .thenReturn(Optional.of(someUser));
+        when(itemRepository.findById(anyLong()))
+                .thenReturn(Optional.of(item));
+        when(bookingRepository.saveAndFlush(any()))
+                .thenThrow(new DataIntegrityViolationException("ex_bookings_item_period"));
+        Exception thrown = assertThrows(ExistsElementException.class, () -> bookingService.create(2L, booking));
+        assertEquals("Item is already booked for these dates", thrown.getMessage());
+    }
+
+    @Test
+    public void shouldReportOnlyOverlapsAsBookedItem() {
+        when(userRepository.findById(anyLong()))
+                .thenReturn(Optional.of(someUser));
+        when(itemRepository.findById(anyLong()))
+                .thenReturn(Optional.of(item));
+        when(bookingRepository.saveAndFlush(any()))
+                .thenThrow(new DataIntegrityViolationException("fk_bookings_item_owner"));
+        assertThrows(DataIntegrityViolationException.class, () -> bookingService.create(2L, booking));
+    }
+
     @Test
     public void shouldExceptionBookingNotFound() {
         when(bookingRepository.findById(anyLong()))
@@ -115,8 +161,8 @@ class BookingServiceUnitTest {
     public void shouldExceptionUserNotFoundGetByIdEndUserId() {
         when(bookingRepository.findById(anyLong()))
                 .thenReturn(Optional.of(booking));
-        when(userRepository.findById(anyLong()))
-                .thenReturn(Optional.empty());
+        when(userRepository.existsById(anyLong()))
+                .thenReturn(false);
         Exception thrown = assertThrows(NoSuchElementException.class, () ->
                 bookingService.getByIdEndUserId(1, 2));
         assertEquals("User not found", thrown.getMessage());
@@ -126,8 +172,8 @@ class BookingServiceUnitTest {
     public void shouldExceptionUserNotFound() {
         when(bookingRepository.findById(anyLong()))
                 .thenReturn(Optional.of(booking));
-        when(userRepository.findById(anyLong()))
-                .thenReturn(Optional.empty());
+        when(userRepository.existsById(anyLong()))
+                .thenReturn(false);
         Exception thrown = assertThrows(NoSuchElementException.class, () ->
                 bookingService.approveBooking(1, 2, true));
         assertEquals("User not found", thrown.getMessage());
@@ -137,8 +183,8 @@ class BookingServiceUnitTest {
     public void shouldExceptionApprovedIsNull() {
         when(bookingRepository.findById(anyLong()))
                 .thenReturn(Optional.of(booking));
-        when(userRepository.findById(anyLong()))
-                .thenReturn(Optional.of(ownerUser));
+        when(userRepository.existsById(anyLong()))
+                .thenReturn(true);
         Exception thrown = assertThrows(NoSuchElementException.class, () ->
                 bookingService.approveBooking(1, 2, null));
         assertEquals("approved is null", thrown.getMessage());
@@ -148,8 +194,8 @@ class BookingServiceUnitTest {
     public void shouldExceptionUserNotOwnerItem() {
         when(bookingRepository.findById(anyLong()))
                 .thenReturn(Optional.of(booking));
-        when(userRepository.findById(anyLong()))
-                .thenReturn(Optional.of(someUser));
+        when(userRepository.existsById(anyLong()))
+                .thenReturn(true);
         Exception thrown = assertThrows(NoSuchElementException.class, () ->
                 bookingService.approveBooking(2, 2, true));
         assertEquals("User not owner item", thrown.getMessage());
@@ -158,11 +204,11 @@ class BookingServiceUnitTest {
     @Test
     public void shouldExceptionBookingStatusIsApprovedTrue() {
         Booking bookingApproved = new Booking(1L, LocalDateTime.now().plusDays(1),
-                LocalDateTime.now().plusDays(2), item, someUser, BookingStatus.APPROVED);
+                LocalDateTime.now().plusDays(2), item, someUser, BookingStatus.APPROVED, null);
         when(bookingRepository.findById(anyLong()))
                 .thenReturn(Optional.of(bookingApproved));
-        when(userRepository.findById(anyLong()))
-                .thenReturn(Optional.of(someUser));
+        when(userRepository.existsById(anyLong()))
+                .thenReturn(true);
         Exception thrown = assertThrows(ValidateException.class, () ->
                 bookingService.approveBooking(1, 2, true));
         assertEquals("Booking status is already approved", thrown.getMessage());
@@ -175,11 +221,11 @@ class BookingServiceUnitTest {
     @Test
     public void shouldExceptionBookingStatusIsApprovedFalse() {
         Booking bookingRejected = new Booking(1L, LocalDateTime.now().plusDays(1),
-                LocalDateTime.now().plusDays(2), item, someUser, BookingStatus.REJECTED);
+                LocalDateTime.now().plusDays(2), item, someUser, BookingStatus.REJECTED, null);
         when(bookingRepository.findById(anyLong()))
                 .thenReturn(Optional.of(bookingRejected));
-        when(userRepository.findById(anyLong()))
-                .thenReturn(Optional.of(someUser));
+        when(userRepository.existsById(anyLong()))
+                .thenReturn(true);
         Exception thrown = assertThrows(ValidateException.class, () ->
                 bookingService.approveBooking(1, 2, false));
         assertEquals("Booking status is already rejected", thrown.getMessage());
@@ -214,8 +260,8 @@ class BookingServiceUnitTest {
     public void shouldExceptionGetById() {
         when(bookingRepository.findById(anyLong()))
                 .thenReturn(Optional.of(booking));
-        when(userRepository.findById(anyLong()))
-                .thenReturn(Optional.empty());
+        when(userRepository.existsById(anyLong()))
+                .thenReturn(false);
         Exception thrown = assertThrows(NoSuchElementException.class, () ->
                 bookingService.getByIdEndUserId(1, 1));
         assertEquals("User not found", thrown.getMessage());
@@ -225,8 +271,8 @@ class BookingServiceUnitTest {
     public void shouldGetByIdEndUserId() {
         when(bookingRepository.findById(anyLong()))
                 .thenReturn(Optional.of(booking));
-        when(userRepository.findById(anyLong()))
-                .thenReturn(Optional.of(someUser));
+        when(userRepository.existsById(anyLong()))
+                .thenReturn(true);
         Booking bookingTest = bookingService.getByIdEndUserId(1, 2);
         assertEquals(booking, bookingTest);
         assertEquals(2, booking.getBooker().getId());
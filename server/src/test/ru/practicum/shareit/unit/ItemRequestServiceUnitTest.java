@@ -13,10 +13,10 @@ import ru.practicum.shareit.request.service.ItemRequestService;
 import ru.practicum.shareit.request.service.ItemRequestServiceImpl;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.user.service.UserExistence;
 
 import java.time.LocalDateTime;
 import java.util.NoSuchElementException;
-import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -33,7 +33,7 @@ class ItemRequestServiceUnitTest {
 
     @BeforeEach
     public void beforeEach() {
-        itemRequestService = new ItemRequestServiceImpl(itemRequestRepository, userRepository);
+        itemRequestService = new ItemRequestServiceImpl(itemRequestRepository, new UserExistence(userRepository));
     }
 
     @Test
@@ -45,8 +45,8 @@ class ItemRequestServiceUnitTest {
     @Test
     void shouldNoSuchElementExceptionByNoSuchUserForGetRequest() {
         Mockito
-                .when(userRepository.findById(Mockito.anyLong()))
-                .thenReturn(Optional.empty());
+                .when(userRepository.existsById(Mockito.anyLong()))
+                .thenReturn(false);
         Exception thrown = assertThrows(NoSuchElementException.class, () -> itemRequestService.findByRequesterId(1L));
         assertEquals("User not found", thrown.getMessage());
     }
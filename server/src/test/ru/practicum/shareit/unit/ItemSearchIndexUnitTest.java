@@ -0,0 +1,70 @@
+package ru.practicum.shareit.unit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.util.ReflectionTestUtils;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.item.service.ItemSearchIndex;
+import ru.practicum.shareit.user.model.User;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(MockitoExtension.class)
+class ItemSearchIndexUnitTest {
+    private final User user = new User(1L, "Name", "test@test.ru");
+    @Mock
+    ItemRepository itemRepository;
+    private ItemSearchIndex itemSearchIndex;
+
+    @BeforeEach
+    public void beforeEach() {
+        itemSearchIndex = new ItemSearchIndex(itemRepository);
+        ReflectionTestUtils.setField(itemSearchIndex, "enabled", true);
+        Mockito
+                .when(itemRepository.findAll(Mockito.any(Sort.class)))
+                .thenReturn(List.of(
+                        new Item(1L, "Дрель", "Аккумуляторная дрель", true, user, null),
+                        new Item(2L, "Отвертка", "Простая дрель", false, user, null),
+                        new Item(3L, "Молоток", "Скидка 50%", true, user, null)));
+        itemSearchIndex.rebuild();
+    }
+
+    @Test
+    public void shouldFindAvailableItemsIgnoringCase() {
+        assertEquals(List.of(1L), ids(itemSearchIndex.search("ДРЕЛ", 0, 10)));
+        assertEquals(List.of(3L), ids(itemSearchIndex.search("50%", 0, 10)));
+        assertEquals(List.of(1L, 3L), ids(itemSearchIndex.search("о", 0, 10)));
+        assertTrue(itemSearchIndex.search("клей", 0, 10).isEmpty());
+    }
+
+    @Test
+    public void shouldReindexUpdatedAndCreatedItems() {
+        itemSearchIndex.index(new Item(2L, "Отвертка", "Крестовая", true, user, null));
+        itemSearchIndex.index(new Item(4L, "Дрель 2", "Ударная", true, user, null));
+        assertEquals(List.of(1L, 4L), ids(itemSearchIndex.search("дрель", 0, 10)));
+        assertEquals(List.of(2L), ids(itemSearchIndex.search("крест", 0, 10)));
+    }
+
+    @Test
+    public void shouldPageByOffsetAndCursor() {
+        itemSearchIndex.index(new Item(4L, "Дрель 2", "Ударная", true, user, null));
+        assertEquals(List.of(4L), ids(itemSearchIndex.search("дрель", 1, 1)));
+        assertEquals(List.of(1L), ids(itemSearchIndex.searchAfter("дрель", 0L, 1)));
+        assertEquals(List.of(4L), ids(itemSearchIndex.searchAfter("дрель", 1L, 1)));
+        assertTrue(itemSearchIndex.searchAfter("дрель", 4L, 1).isEmpty());
+    }
+
+    private List<Long> ids(List<Item> items) {
+        return items.stream().map(Item::getId).collect(Collectors.toList());
+    }
+}
@@ -12,12 +12,16 @@ import ru.practicum.shareit.exception.ValidateException;
 import ru.practicum.shareit.item.model.Comment;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.CommentRepository;
+import ru.practicum.shareit.item.repository.ItemCardRepository;
+import ru.practicum.shareit.item.repository.ItemPatchRepository;
 import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.item.service.ItemSearchIndex;
 import ru.practicum.shareit.item.service.ItemService;
 import ru.practicum.shareit.item.service.ItemServiceImpl;
 import ru.practicum.shareit.request.repository.ItemRequestRepository;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.user.service.UserExistence;
 
 import java.time.LocalDateTime;
 import java.util.List;
@@ -41,13 +45,21 @@ class ItemServiceUnitTest {
     UserRepository userRepository;
     @Mock
     ItemRequestRepository itemRequestRepository;
+    @Mock
+    ItemSearchIndex itemSearchIndex;
+    @Mock
+    ItemCardRepository itemCardRepository;
+    @Mock
+    ItemPatchRepository itemPatchRepository;
     Item item = new Item(1L, "Клей", "Секундный клей момент", true, user, null);
     private final Comment comment = new Comment(1L, "Коммнтарий", item, user, LocalDateTime.now());
     private ItemService itemService;
 
     @BeforeEach
     public void beforeEach() {
-        itemService = new ItemServiceImpl(itemRepository, userRepository, commentRepository, bookingRepository, itemRequestRepository);
+        itemService = new ItemServiceImpl(itemRepository, itemCardRepository, itemPatchRepository, userRepository,
+                commentRepository, bookingRepository, itemRequestRepository, itemSearchIndex,
+                new UserExistence(userRepository));
     }
 
     @Test
@@ -66,8 +78,8 @@ class ItemServiceUnitTest {
                 .when(itemRepository.findById(Mockito.anyLong()))
                 .thenReturn(Optional.of(item));
         Mockito
-                .when(userRepository.findById(Mockito.anyLong()))
-                .thenReturn(Optional.of(someUser));
+                .when(userRepository.existsById(Mockito.anyLong()))
+                .thenReturn(true);
         Exception thrown = assertThrows(NoSuchElementException.class, () -> itemService.update(someUser.getId(),
                 1L, item));
         assertEquals("Access denied", thrown.getMessage());
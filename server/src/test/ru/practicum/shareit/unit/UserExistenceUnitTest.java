@@ -0,0 +1,56 @@
+package ru.practicum.shareit.unit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.user.service.UserExistence;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserExistenceUnitTest {
+    @Mock
+    UserRepository userRepository;
+    private UserExistence userExistence;
+
+    @BeforeEach
+    public void beforeEach() {
+        userExistence = new UserExistence(userRepository);
+    }
+
+    @Test
+    public void shouldAnswerKnownIdsWithoutRepository() {
+        Mockito
+                .when(userRepository.findAllIds())
+                .thenReturn(List.of(1L, 5L));
+        userExistence.load();
+        assertTrue(userExistence.exists(1L));
+        assertTrue(userExistence.exists(5L));
+        Mockito.verify(userRepository, Mockito.never()).existsById(Mockito.anyLong());
+    }
+
+    @Test
+    public void shouldFallBackToRepositoryAndRemember() {
+        Mockito
+                .when(userRepository.existsById(7L))
+                .thenReturn(true);
+        assertTrue(userExistence.exists(7L));
+        assertTrue(userExistence.exists(7L));
+        Mockito.verify(userRepository, Mockito.times(1)).existsById(7L);
+    }
+
+    @Test
+    public void shouldThrowForRemovedUser() {
+        userExistence.add(3L);
+        userExistence.remove(3L);
+        Exception thrown = assertThrows(NoSuchElementException.class, () -> userExistence.check(3L));
+        assertEquals("User not found", thrown.getMessage());
+    }
+}
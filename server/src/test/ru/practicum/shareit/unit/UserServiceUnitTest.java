@@ -6,12 +6,18 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
 import ru.practicum.shareit.exception.ExistsElementException;
+import ru.practicum.shareit.exception.ValidateException;
 import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.repository.UserPatchRepository;
 import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.user.service.EmailFilter;
+import ru.practicum.shareit.user.service.UserExistence;
 import ru.practicum.shareit.user.service.UserService;
 import ru.practicum.shareit.user.service.UserServiceImpl;
 
+import java.sql.SQLException;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 
@@ -23,17 +29,20 @@ class UserServiceUnitTest {
     private final User user = new User(1L, "Name", "test@test.ru");
     @Mock
     UserRepository userRepository;
+    @Mock
+    UserPatchRepository userPatchRepository;
     private UserService userService;
 
     @BeforeEach
     public void beforeEach() {
-        userService = new UserServiceImpl(userRepository);
+        userService = new UserServiceImpl(userRepository, userPatchRepository, new UserExistence(userRepository),
+                new EmailFilter(userRepository, 100, 0.01));
     }
 
     @Test
     public void shouldNoSuchElementExceptionByWrongUser() {
         Mockito
-                .when(userRepository.findById(Mockito.anyLong()))
+                .when(userPatchRepository.update(Mockito.anyLong(), Mockito.any(User.class)))
                 .thenReturn(Optional.empty());
         Exception thrown = assertThrows(NoSuchElementException.class, () -> userService.update(1L, user));
         assertEquals("User not found", thrown.getMessage());
@@ -42,14 +51,36 @@ class UserServiceUnitTest {
     @Test
     public void shouldExistsElementException() {
         Mockito
-                .when(userRepository.findById(Mockito.anyLong()))
-                .thenReturn(Optional.of(user));
-        Mockito
-                .when(userRepository.findByEmailContainsIgnoreCase(Mockito.anyString()))
-                .thenReturn(Optional.of(user));
+                .when(userRepository.existsByNormalizedEmail("test@test.ru", 1L))
+                .thenReturn(true);
         User updateUser = new User(1L, "Name 2", "test@test.ru");
         Exception thrown = assertThrows(ExistsElementException.class, () -> userService.update(1L, updateUser));
         assertEquals("Email exists", thrown.getMessage());
+        Mockito.verifyNoInteractions(userPatchRepository);
+    }
+
+    @Test
+    public void shouldReportOnlyUniqueViolationAsExistingEmail() {
+        Mockito
+                .when(userRepository.saveAndFlush(Mockito.any(User.class)))
+                .thenThrow(new DataIntegrityViolationException("duplicate",
+                        new SQLException("duplicate key value violates unique constraint", "23505")))
+                .thenThrow(new DataIntegrityViolationException("too long",
+                        new SQLException("value too long for type character varying(255)", "22001")));
+
+        Exception thrown = assertThrows(ExistsElementException.class,
+                () -> userService.create(new User(null, "Name", "test@test.ru")));
+        assertEquals("Email exists", thrown.getMessage());
+        assertThrows(DataIntegrityViolationException.class,
+                () -> userService.create(new User(null, "Name", "test@test.ru")));
+    }
+
+    @Test
+    public void shouldRejectUserWithoutNameBeforeInsert() {
+        Exception thrown = assertThrows(ValidateException.class,
+                () -> userService.create(new User(null, " ", "test@test.ru")));
+        assertEquals("Name is empty", thrown.getMessage());
+        Mockito.verifyNoInteractions(userRepository);
     }
 
 }